@@ -0,0 +1,125 @@
+package benchmark;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks for the public ChessGame and ChessBoard calls the server makes
+ * on every move.
+ * <p>
+ * Run with: java -jar benchmark/target/benchmark-jar-with-dependencies.jar MoveBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+
+    @Param({"start", "middlegame", "endgame"})
+    public String position;
+
+    private ChessGame game;
+    private ChessBoard board;
+    private List<ChessPosition> occupied;
+    private MoveList moves;
+
+    // knights out and back again, which leaves the game where it started
+    private ChessGame cycleGame;
+    private ChessMove[] cycle;
+    private int next;
+
+    @Setup
+    public void setUp()
+    {
+        game = Fen.toGame(Positions.byName(position));
+        board = game.getBoard();
+        occupied = new ArrayList<>();
+        for (int row = 1; row <= 8; row++)
+        {
+            for (int col = 1; col <= 8; col++)
+            {
+                if (board.getPiece(ChessPosition.of(row, col)) != null)
+                    occupied.add(ChessPosition.of(row, col));
+            }
+        }
+        moves = new MoveList();
+
+        cycleGame = Fen.toGame(Fen.STARTING_POSITION);
+        cycle = new ChessMove[]{
+                new ChessMove(ChessPosition.of(1, 7), ChessPosition.of(3, 6), null),
+                new ChessMove(ChessPosition.of(8, 2), ChessPosition.of(6, 3), null),
+                new ChessMove(ChessPosition.of(3, 6), ChessPosition.of(1, 7), null),
+                new ChessMove(ChessPosition.of(6, 3), ChessPosition.of(8, 2), null),
+        };
+        next = 0;
+    }
+
+    /**
+     * validMoves for every piece on the board, the way the client highlights moves
+     */
+    @Benchmark
+    public void validMoves(Blackhole blackhole)
+    {
+        for (ChessPosition position : occupied)
+            blackhole.consume(game.validMoves(position));
+    }
+
+    /**
+     * The same thing, but filling a reused MoveList instead of building sets
+     */
+    @Benchmark
+    public int validMovesIntoList()
+    {
+        int total = 0;
+        for (ChessPosition position : occupied)
+        {
+            moves.clear();
+            game.validMoves(position, moves);
+            total += moves.size();
+        }
+        return total;
+    }
+
+    /**
+     * Every move for both teams at once, with checks and pins shared across pieces
+     */
+    @Benchmark
+    public int allMoves()
+    {
+        moves.clear();
+        game.allMoves(ChessGame.TeamColor.WHITE, moves);
+        game.allMoves(ChessGame.TeamColor.BLACK, moves);
+        return moves.size();
+    }
+
+    @Benchmark
+    public void isInCheck(Blackhole blackhole)
+    {
+        blackhole.consume(game.isInCheck(ChessGame.TeamColor.WHITE));
+        blackhole.consume(game.isInCheck(ChessGame.TeamColor.BLACK));
+    }
+
+    /**
+     * One validated makeMove, including the checkmate and stalemate test after it
+     */
+    @Benchmark
+    public ChessBoard makeMove() throws InvalidMoveException
+    {
+        cycleGame.makeMove(cycle[next]);
+        next = (next + 1) & 3;
+        return cycleGame.getBoard();
+    }
+
+    @Benchmark
+    public ChessBoard copyBoard()
+    {
+        return new ChessBoard(board);
+    }
+}
@@ -0,0 +1,43 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Perft;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times a full perft walk, which covers move generation, making and taking back
+ * moves and the check tests in roughly the mix a search would use them.
+ * <p>
+ * Run with: java -jar benchmark/target/benchmark-jar-with-dependencies.jar PerftBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+
+    @Param({"start", "middlegame", "endgame", "promotion"})
+    public String position;
+
+    @Param({"3", "4"})
+    public int depth;
+
+    private ChessGame game;
+
+    @Setup
+    public void setUp()
+    {
+        game = Fen.toGame(Positions.byName(position));
+    }
+
+    @Benchmark
+    public long perft()
+    {
+        return Perft.perft(game, depth);
+    }
+}
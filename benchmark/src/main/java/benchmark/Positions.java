@@ -0,0 +1,32 @@
+package benchmark;
+
+import chess.Fen;
+
+/**
+ * The positions the benchmarks run on, in FEN. Castling and en passant don't exist
+ * in this game, so those fields are left empty.
+ */
+final class Positions {
+
+    // "kiwipete", a busy middlegame with lots of pins, checks and captures
+    static final String MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1";
+
+    // a bare rook and pawn endgame where the kings and rooks have lots of room
+    static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    // every pawn is one step from promoting
+    static final String PROMOTION = "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1";
+
+    private Positions() {}
+
+    static String byName(String name)
+    {
+        return switch (name) {
+            case "start" -> Fen.STARTING_POSITION;
+            case "middlegame" -> MIDDLEGAME;
+            case "endgame" -> ENDGAME;
+            case "promotion" -> PROMOTION;
+            default -> throw new IllegalArgumentException("No position called " + name);
+        };
+    }
+}
@@ -6,6 +6,9 @@ import com.google.gson.internal.LinkedTreeMap;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
 import model.JoinGameData;
 import model.UserData;
 
@@ -13,6 +16,8 @@ import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -53,14 +58,43 @@ public class ServerFacade {
         return this.makeRequestAuthToken("PUT", path, request, Object.class, authToken);
     }
 
-    public Collection<GameData> listGames(String authToken) throws ResponseException
+    public Collection<GameSummary> listGames(String authToken) throws ResponseException
     {
+        // go through the pages until there aren't any more
+        Collection<GameSummary> toReturn = new ArrayList<GameSummary>();
+        int after = 0;
+        while (true)
+        {
+            GamePage page = this.listGames(new GameQuery(null, null, false, after, 0), authToken);
+            toReturn.addAll(page.games());
+            if (page.nextCursor() == null)
+                return toReturn;
+            after = page.nextCursor();
+        }
+    }
 
-        var path = "/game";
-        var response = this.makeRequestListGames("GET", path, null, authToken);
-
-        Collection<GameData> toReturn = new ArrayList<GameData>(Arrays.asList(response));
-        return toReturn;
+    /**
+     * Gets one page of games. Summaries don't have the boards, use getGame for that.
+     * A limit of 0 lets the server pick the page size.
+     */
+    public GamePage listGames(GameQuery query, String authToken) throws ResponseException
+    {
+        StringBuilder path = new StringBuilder("/game?after=" + query.after());
+        if (query.limit() > 0)
+            path.append("&limit=").append(query.limit());
+        if (query.namePrefix() != null)
+            path.append("&name=").append(URLEncoder.encode(query.namePrefix(), StandardCharsets.UTF_8));
+        if (query.player() != null)
+            path.append("&player=").append(URLEncoder.encode(query.player(), StandardCharsets.UTF_8));
+        if (query.openSeats())
+            path.append("&open=true");
+        return this.makeRequestAuthToken("GET", path.toString(), null, GamePage.class, authToken);
+    }
+
+    public GameData getGame(int gameID, String authToken) throws ResponseException
+    {
+        var path = "/game/" + gameID;
+        return this.makeRequestAuthToken("GET", path, null, GameData.class, authToken);
     }
 
 
@@ -150,37 +184,4 @@ public class ServerFacade {
         return status / 100 == 2;
     }
 
-    private GameData[] makeRequestListGames(String method, String path, Object request, String authToken)
-            throws ResponseException {
-        try {
-            URL url = (new URI(serverUrl + path)).toURL();
-            HttpURLConnection http = (HttpURLConnection) url.openConnection();
-            http.addRequestProperty("authorization", authToken);
-            http.setRequestMethod(method);
-            http.setDoOutput(true);
-
-            writeBody(request, http);
-            http.connect();
-            throwIfNotSuccessful(http);
-            return readBody(http);
-        } catch (Exception ex) {
-            throw new ResponseException(500, ex.getMessage());
-        }
-    }
-
-
-    private static GameData[] readBody(HttpURLConnection http) throws IOException {
-        GameData[] response = null;
-        if (http.getContentLength() < 0) {
-            try (InputStream respBody = http.getInputStream()) {
-                InputStreamReader reader = new InputStreamReader(respBody);
-                BufferedReader bufferedReader = new BufferedReader(reader);
-                String temp = bufferedReader.readLine();
-                String temp1 = temp.substring(9, temp.length() - 1);
-                response = new Gson().fromJson(temp1, GameData[].class);
-            }
-        }
-        return response;
-    }
-
-}
\ No newline at end of file
+}
@@ -39,10 +39,10 @@ public class GameplayUI
         System.out.println("You have entered a game. Type 'help' to get started");
 
         // get the game
-        Collection<GameData> gameDataCollection = null;
+        GameData possibleGame = null;
         try
         {
-            gameDataCollection = server.listGames(this.authData.authToken());
+            possibleGame = server.getGame(this.gameID, this.authData.authToken());
         }
         catch (ResponseException e)
         {
@@ -51,41 +51,36 @@ public class GameplayUI
         }
 
         ChessGame game = null;
-        for (GameData possibleGame : gameDataCollection)
+        if (possibleGame != null)
         {
-            if (possibleGame.gameID() == this.gameID)
+            game = possibleGame.game();
+
+            // get the right color
+            ChessGame.TeamColor color = null;
+            if (possibleGame.whiteUsername() != null &&
+                possibleGame.whiteUsername().equals(this.username))
+                color = ChessGame.TeamColor.WHITE;
+            else if (possibleGame.blackUsername() != null &&
+                     possibleGame.blackUsername().equals(this.username))
+                color = ChessGame.TeamColor.BLACK;
+            else
             {
-                game = possibleGame.game();
-
-                // get the right color
-                ChessGame.TeamColor color = null;
-                if (possibleGame.whiteUsername() != null &&
-                    possibleGame.whiteUsername().equals(this.username))
-                    color = ChessGame.TeamColor.WHITE;
-                else if (possibleGame.blackUsername() != null &&
-                         possibleGame.blackUsername().equals(this.username))
-                    color = ChessGame.TeamColor.BLACK;
-                else
-                {
 //                    System.out.println("Error: invalid color problem");
 //                    return;
-                }
-
-                try
-                {
-                    if (color != null)
-                        ws.enterGame(this.authData.authToken(), this.gameID, color);
-                    else
-                        ws.observeGame(authData.authToken(), gameID);
-                }
-                catch (ResponseException e)
-                {
-                    System.out.println("Error: unable to join game via websocket");
-                    System.out.printf("Status code: %d", e.statusCode());
-                    return;
-                }
+            }
 
-                break;
+            try
+            {
+                if (color != null)
+                    ws.enterGame(this.authData.authToken(), this.gameID, color);
+                else
+                    ws.observeGame(authData.authToken(), gameID);
+            }
+            catch (ResponseException e)
+            {
+                System.out.println("Error: unable to join game via websocket");
+                System.out.printf("Status code: %d", e.statusCode());
+                return;
             }
         }
 
@@ -326,21 +321,15 @@ public class GameplayUI
 
     ChessGame getGame() {
         // get the game
-        Collection<GameData> gameDataCollection = null;
+        GameData gameData = null;
         try {
-            gameDataCollection = server.listGames(this.authData.authToken());
+            gameData = server.getGame(this.gameID, this.authData.authToken());
         } catch (ResponseException e) {
             System.out.println("Error joining game");
             return null;
         }
 
-        for (GameData possibleGame : gameDataCollection) {
-            if (possibleGame.gameID() == this.gameID) {
-                return possibleGame.game();
-
-            }
-        }
-        return null;
+        return gameData == null ? null : gameData.game();
     }
 
 
@@ -4,6 +4,7 @@ package ui;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import server.ServerFacade;
 
 import java.util.*;
@@ -114,7 +115,7 @@ public class PostloginUI
 
     private void listGames()
     {
-        Collection<GameData> games;
+        Collection<GameSummary> games;
         try
         {
             games = server.listGames(this.authData.authToken());
@@ -130,7 +131,7 @@ public class PostloginUI
 
         System.out.println("Available games:");
         int i = 1;
-        for (GameData game : games)
+        for (GameSummary game : games)
         {
             String whiteUsername = game.whiteUsername() == null ? "(None)" : game.whiteUsername();
             String blackUsername = game.blackUsername() == null ? "(None)" : game.blackUsername();
@@ -55,7 +55,7 @@ public class Utilities
                 }
                 else
                 {
-                    ChessPiece piece = board.getPiece(new ChessPosition(row, col ));
+                    ChessPiece piece = board.getPiece(ChessPosition.of(row, col ));
                     if (piece == null)
                     {
                         String backgroundColorCode = colorAlternator ?
@@ -100,7 +100,7 @@ public class Utilities
                 }
                 else
                 {
-                    ChessPiece piece = board.getPiece(new ChessPosition(row, col ));
+                    ChessPiece piece = board.getPiece(ChessPosition.of(row, col ));
                     if (piece == null)
                     {
                         String backgroundColorCode = colorAlternator ?
@@ -149,7 +149,7 @@ public class Utilities
                 }
                 else
                 {
-                    ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+                    ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
                     if (piece == null)
                     {
                         String backgroundColorCode = colorAlternator ?
@@ -158,7 +158,7 @@ public class Utilities
                         System.out.printf(backgroundColorCode);
 
                         // if it's a possible move, highlight it, and then undo the color change
-                        ChessPosition tempPosition = new ChessPosition(row, col);
+                        ChessPosition tempPosition = ChessPosition.of(row, col);
                         if (possiblePositions.contains(tempPosition))
                         {
                             //System.out.print(tempPosition.toString());
@@ -178,7 +178,7 @@ public class Utilities
                         System.out.printf(backgroundColorCode);
 
                         // if it's a possible move, highlight it, and then undo the color change
-                        ChessPosition tempPosition = new ChessPosition(row, col);
+                        ChessPosition tempPosition = ChessPosition.of(row, col);
                         if (possiblePositions.contains(tempPosition))
                         {
                             System.out.printf(EscapeSequences.SET_BG_COLOR_MAGENTA);
@@ -3,6 +3,7 @@ package clientTests;
 import chess.ChessGame;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import model.UserData;
 import org.junit.jupiter.api.*;
 import server.Server;
@@ -207,7 +208,7 @@ public class ServerFacadeTests {
             serverFacade.createGame("veni vidi vici", authData.authToken());
             Assertions.assertDoesNotThrow(() -> serverFacade.listGames(authData.authToken()));
 
-            Collection<GameData> test = serverFacade.listGames(authData.authToken());
+            Collection<GameSummary> test = serverFacade.listGames(authData.authToken());
 
             int i = 0;
         }
@@ -0,0 +1,118 @@
+package dataAccess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which username goes with each auth token, so checking a token doesn't
+ * have to ask the database every time. Every request checks its token at least once,
+ * which makes it the query the database sees the most.
+ * <p>
+ * Only tokens that exist are remembered. An entry is dropped once it's older than the
+ * time to live, and when the cache is full the token used longest ago makes room.
+ * Logging out (or clearing the database) has to call invalidate or invalidateAll, and
+ * the time to live caps how long a token deleted some other way can still be used.
+ */
+public class AuthCache {
+
+    /**
+     * A snapshot of how the cache has been doing
+     */
+    public record Stats(int size, long hits, long misses, long evictions, long expirations) {}
+
+    private record Entry(String username, long expiresAt) {}
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    // everything below is guarded by the cache's lock
+
+    // least recently used first, so the eldest entry is the one to evict
+    private final LinkedHashMap<String, Entry> entries;
+    // bumped by every invalidation, so a lookup that started before one can tell it's stale
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * @param maxSize the most tokens to remember. 0 turns the cache off
+     * @param ttlMillis how long a token is remembered after it's looked up in the database
+     */
+    public AuthCache(int maxSize, long ttlMillis)
+    {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest)
+            {
+                if (size() <= AuthCache.this.maxSize)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return the username for the token, or null if it isn't cached (or has expired)
+     */
+    public synchronized String get(String authToken)
+    {
+        Entry entry = entries.get(authToken);
+        if (entry != null && entry.expiresAt() - System.nanoTime() <= 0)
+        {
+            entries.remove(authToken);
+            expirations++;
+            entry = null;
+        }
+
+        if (entry == null)
+        {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.username();
+    }
+
+    /**
+     * @return a stamp to take before looking a token up in the database and pass to put
+     * afterward, so an answer that a logout overtook isn't cached
+     */
+    public synchronized long stamp()
+    {
+        return generation;
+    }
+
+    /**
+     * Remembers a token's username, unless something was invalidated since stamp
+     */
+    public synchronized void put(String authToken, String username, long stamp)
+    {
+        if (maxSize <= 0 || authToken == null || username == null || stamp != generation)
+            return;
+        entries.put(authToken, new Entry(username, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(String authToken)
+    {
+        generation++;
+        entries.remove(authToken);
+    }
+
+    public synchronized void invalidateAll()
+    {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized Stats stats()
+    {
+        return new Stats(entries.size(), hits, misses, evictions, expirations);
+    }
+}
@@ -0,0 +1,464 @@
+package dataAccess;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed-size pool of database connections, so queries don't have to open a new
+ * connection (and do the whole TCP and login handshake) every time.
+ * <p>
+ * Borrowed connections are wrappers: closing one hands the real connection back to
+ * the pool instead of closing it. A connection is thrown away instead of reused once
+ * it has been open longer than maxLifetime, has sat unused longer than idleTimeout,
+ * or fails a validity check after sitting unused for a while.
+ * <p>
+ * When every connection is in use, borrowers line up and are served in order: a
+ * connection coming back goes straight to whoever has waited longest.
+ * <p>
+ * Prepared statements are cached by the driver, per connection (see the options
+ * DatabaseManager puts on the URL). The pool hands the same real connections out again
+ * and again, so a borrower gets whatever the last ones already prepared on it.
+ */
+public class ConnectionPool {
+
+    /**
+     * A snapshot of how the pool has been doing. Wait times only count borrows that
+     * actually had to wait for a connection to free up.
+     */
+    public record Stats(int open, int idle, int waiting, long borrowed, long waited, long timedOut,
+                        double averageWaitMillis, double maxWaitMillis, long opened, long discarded) {}
+
+    // connections that have been idle less than this are assumed to still be fine
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final String catalog;
+
+    private final int maxSize;
+    private final long connectionTimeoutNanos;
+    private final long idleTimeoutNanos;
+    private final long maxLifetimeNanos;
+    private final int validationTimeoutSeconds;
+
+    // a ReentrantLock rather than synchronized, so a virtual thread waiting its turn for a
+    // connection gives up its carrier thread instead of holding onto it
+    private final ReentrantLock lock = new ReentrantLock();
+    // signalled whenever a waiter is handed a connection or a free slot
+    private final Condition handedOver = lock.newCondition();
+
+    // everything below is guarded by the pool's lock
+
+    // most recently returned first, so the busy connections stay warm and the rest age out
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    // borrowers waiting for a connection, longest waiting first
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    // every connection the pool has open, idle or borrowed (or being opened right now)
+    private int open = 0;
+
+    private long borrowed = 0;
+    private long waited = 0;
+    private long timedOut = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanos = 0;
+    private long opened = 0;
+    private long discarded = 0;
+
+    private final ScheduledExecutorService evictor;
+
+    ConnectionPool(String url, String user, String password, String catalog, int maxSize,
+                   long connectionTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis,
+                   int validationTimeoutSeconds)
+    {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.catalog = catalog;
+        this.maxSize = maxSize;
+        this.connectionTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(connectionTimeoutMillis);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.maxLifetimeNanos = TimeUnit.MILLISECONDS.toNanos(maxLifetimeMillis);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+
+        // sweep out idle and worn out connections in the background, so a quiet server
+        // doesn't sit on connections the database is about to drop anyway
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+        this.evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets a connection, waiting up to connectionTimeout for one to free up if the
+     * pool is at its max size. Close it when you're done to give it back.
+     */
+    Connection borrow() throws SQLException
+    {
+        long start = System.nanoTime();
+        long deadline = start + connectionTimeoutNanos;
+        boolean hadToWait = false;
+
+        while (true)
+        {
+            PooledConnection pooled = null;
+            boolean mayOpen = false;
+            lock.lock();
+            try
+            {
+                // nobody gets to cut in front of the line
+                if (waiters.isEmpty() && !idle.isEmpty())
+                    pooled = idle.pollFirst();
+                else if (waiters.isEmpty() && open < maxSize)
+                {
+                    // take the slot now, and open the connection outside the lock
+                    open++;
+                    mayOpen = true;
+                }
+                else
+                {
+                    hadToWait = true;
+                    Waiter waiter = awaitTurn(deadline);
+                    pooled = waiter.connection;
+                    mayOpen = waiter.mayOpen;
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            if (mayOpen)
+                pooled = openConnection();
+            else if (!stillGood(pooled))
+            {
+                discard(pooled);
+                continue;
+            }
+
+            long waitNanos = System.nanoTime() - start;
+            lock.lock();
+            try
+            {
+                borrowed++;
+                if (hadToWait)
+                {
+                    waited++;
+                    totalWaitNanos += waitNanos;
+                    maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+                }
+            }
+            finally
+            {
+                lock.unlock();
+            }
+            return pooled.lend();
+        }
+    }
+
+    // gets in line and waits to be handed a connection or a free slot. call with the lock held
+    private Waiter awaitTurn(long deadline) throws SQLException
+    {
+        Waiter waiter = new Waiter();
+        waiters.addLast(waiter);
+        while (waiter.connection == null && !waiter.mayOpen)
+        {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+            {
+                waiters.remove(waiter);
+                timedOut++;
+                throw new SQLException(String.format("Timed out after %d ms waiting for a database connection",
+                        TimeUnit.NANOSECONDS.toMillis(connectionTimeoutNanos)));
+            }
+            try
+            {
+                handedOver.awaitNanos(remaining);
+            }
+            catch (InterruptedException e)
+            {
+                // pass along anything that was handed over in the meantime
+                waiters.remove(waiter);
+                if (waiter.connection != null)
+                    offer(waiter.connection);
+                else if (waiter.mayOpen)
+                    releaseSlot();
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection");
+            }
+        }
+        return waiter;
+    }
+
+    Stats stats()
+    {
+        lock.lock();
+        try
+        {
+            double averageWait = waited == 0 ? 0 : totalWaitNanos / (double) waited / 1_000_000;
+            return new Stats(open, idle.size(), waiters.size(), borrowed, waited, timedOut, averageWait,
+                    maxWaitNanos / 1_000_000.0, opened, discarded);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException
+    {
+        try
+        {
+            Connection connection = DriverManager.getConnection(url, user, password);
+            try
+            {
+                connection.setCatalog(catalog);
+            }
+            catch (SQLException e)
+            {
+                connection.close();
+                throw e;
+            }
+            lock.lock();
+            try
+            {
+                opened++;
+            }
+            finally
+            {
+                lock.unlock();
+            }
+            return new PooledConnection(connection);
+        }
+        catch (SQLException e)
+        {
+            lock.lock();
+            try
+            {
+                releaseSlot();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private boolean stillGood(PooledConnection pooled)
+    {
+        long now = System.nanoTime();
+        if (now - pooled.createdAt > maxLifetimeNanos || now - pooled.returnedAt > idleTimeoutNanos)
+            return false;
+        if (now - pooled.returnedAt < VALIDATION_BYPASS_NANOS)
+            return true;
+        try
+        {
+            return pooled.connection.isValid(validationTimeoutSeconds);
+        }
+        catch (SQLException e)
+        {
+            return false;
+        }
+    }
+
+    // called when a borrowed connection is closed
+    private void giveBack(PooledConnection pooled)
+    {
+        boolean reusable;
+        try
+        {
+            // don't hand the next borrower a half finished transaction
+            if (!pooled.connection.getAutoCommit())
+            {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            reusable = !pooled.connection.isClosed()
+                    && System.nanoTime() - pooled.createdAt < maxLifetimeNanos;
+        }
+        catch (SQLException e)
+        {
+            reusable = false;
+        }
+
+        if (!reusable)
+        {
+            discard(pooled);
+            return;
+        }
+
+        lock.lock();
+        try
+        {
+            pooled.returnedAt = System.nanoTime();
+            offer(pooled);
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    private void discard(PooledConnection pooled)
+    {
+        try
+        {
+            pooled.connection.close();
+        }
+        catch (SQLException e)
+        {
+            // it's going away either way
+        }
+        lock.lock();
+        try
+        {
+            discarded++;
+            releaseSlot();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    // hands a free connection to the longest waiting borrower, or puts it back as idle.
+    // call with the lock held
+    private void offer(PooledConnection pooled)
+    {
+        Waiter waiter = waiters.pollFirst();
+        if (waiter == null)
+            idle.addFirst(pooled);
+        else
+        {
+            waiter.connection = pooled;
+            handedOver.signalAll();
+        }
+    }
+
+    // a connection was closed for good, so let the longest waiting borrower open a new one
+    // in its place. call with the lock held
+    private void releaseSlot()
+    {
+        Waiter waiter = waiters.pollFirst();
+        if (waiter == null)
+            open--;
+        else
+        {
+            waiter.mayOpen = true;
+            handedOver.signalAll();
+        }
+    }
+
+    private void evictIdle()
+    {
+        ArrayDeque<PooledConnection> expired = new ArrayDeque<>();
+        long now = System.nanoTime();
+        lock.lock();
+        try
+        {
+            Iterator<PooledConnection> iterator = idle.iterator();
+            while (iterator.hasNext())
+            {
+                PooledConnection pooled = iterator.next();
+                if (now - pooled.createdAt > maxLifetimeNanos || now - pooled.returnedAt > idleTimeoutNanos)
+                {
+                    iterator.remove();
+                    expired.add(pooled);
+                }
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : expired)
+            discard(pooled);
+    }
+
+    /**
+     * A borrower in line. It gets either a connection someone gave back, or the go-ahead
+     * to open a new one in place of one that was thrown away.
+     */
+    private static class Waiter {
+        PooledConnection connection;
+        boolean mayOpen;
+    }
+
+    /**
+     * A real connection plus the bookkeeping the pool needs for it
+     */
+    private class PooledConnection {
+        final Connection connection;
+        final long createdAt;
+        long returnedAt;
+
+        PooledConnection(Connection connection)
+        {
+            this.connection = connection;
+            this.createdAt = System.nanoTime();
+            this.returnedAt = this.createdAt;
+        }
+
+        /**
+         * Wraps the connection for one borrower. Closing the wrapper gives the connection
+         * back, and the wrapper can't be used after that even if the connection is lent
+         * to someone else.
+         */
+        Connection lend()
+        {
+            var handler = new java.lang.reflect.InvocationHandler() {
+                private boolean closed = false;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                {
+                    switch (method.getName())
+                    {
+                        case "close":
+                            if (!closed)
+                            {
+                                closed = true;
+                                giveBack(PooledConnection.this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed || connection.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled " + connection;
+                    }
+                    if (closed)
+                        throw new SQLException("Connection has already been given back to the pool");
+                    try
+                    {
+                        return method.invoke(connection, args);
+                    }
+                    catch (InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, handler);
+        }
+    }
+}
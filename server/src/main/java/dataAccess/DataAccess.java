@@ -1,8 +1,11 @@
 package dataAccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
 import model.UserData;
 
 import java.util.Collection;
@@ -28,15 +31,39 @@ public interface DataAccess
 
     boolean gameExists(int gameID);
 
-    Collection<GameData> listGames();
+    /**
+     * Lists one page of the games that match the query, in gameID order. Only the
+     * summary columns are read, so no board is ever loaded
+     */
+    GamePage listGames(GameQuery query);
 
     GameData getGame(int gameId);
 
-    void addPlayerToGame(int gameId, String authToken, boolean isWhite);
+    /**
+     * Puts the player in the seat, as long as nobody is in it yet
+     *
+     * @return false if someone already has the seat
+     */
+    boolean addPlayerToGame(int gameId, String authToken, boolean isWhite);
 
     String getUsername(String authToken);
 
     void updateGame(int gameID, ChessGame game);
 
+    // records one move made in a game, without saving the whole game again
+    void addMove(int gameID, ChessMove move);
+
+    /**
+     * Runs every write made inside writes together, in one transaction, so they either
+     * all happen or none of them do
+     */
+    void batch(Writes writes) throws DataAccessException;
+
+    @FunctionalInterface
+    interface Writes
+    {
+        void run() throws DataAccessException;
+    }
+
     void removePlayer(int gameID, String username);
 }
\ No newline at end of file
@@ -8,6 +8,8 @@ public class DatabaseManager {
     private static final String user;
     private static final String password;
     private static final String connectionUrl;
+    private static final ConnectionPool pool;
+    private static final AuthCache authCache;
 
     /*
      * Load the database information for the db.properties file.
@@ -25,6 +27,24 @@ public class DatabaseManager {
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
                 connectionUrl = String.format("jdbc:mysql://%s:%d", host, port);
+
+                // the pool's connections prepare statements on the server and keep them for next
+                // time, send a batch of the same write as one statement, and don't ask the server
+                // for settings (like autocommit) they already know. there are more statements than
+                // the driver keeps by default
+                var pooledUrl = connectionUrl + "?useServerPrepStmts=true&cachePrepStmts=true&prepStmtCacheSize=64"
+                        + "&rewriteBatchedStatements=true&useLocalSessionState=true";
+
+                // the pool settings are optional, so older db.properties files still work
+                pool = new ConnectionPool(pooledUrl, user, password, databaseName,
+                        Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                        Long.parseLong(props.getProperty("db.pool.connectionTimeoutMs", "5000")),
+                        Long.parseLong(props.getProperty("db.pool.idleTimeoutMs", "600000")),
+                        Long.parseLong(props.getProperty("db.pool.maxLifetimeMs", "1800000")),
+                        Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", "2")));
+                authCache = new AuthCache(
+                        Integer.parseInt(props.getProperty("db.authCache.maxSize", "10000")),
+                        Long.parseLong(props.getProperty("db.authCache.ttlMs", "300000")));
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -37,8 +57,9 @@ public class DatabaseManager {
     static void createDatabase() throws DataAccessException {
         try {
             var statement = "CREATE DATABASE IF NOT EXISTS " + databaseName;
-            var conn = DriverManager.getConnection(connectionUrl, user, password);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
+            // not pooled, since pooled connections expect the database to already exist
+            try (var conn = DriverManager.getConnection(connectionUrl, user, password);
+                 var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -47,9 +68,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
+     * Borrows a connection to the database from the connection pool, with the catalog
+     * set based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when you are
+     * done with it, which gives it back to the pool.
      * The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
@@ -60,11 +82,32 @@ public class DatabaseManager {
      */
     static Connection getConnection() throws DataAccessException {
         try {
-            var conn = DriverManager.getConnection(connectionUrl, user, password);
-            conn.setCatalog(databaseName);
-            return conn;
+            return pool.borrow();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
+
+    /**
+     * @return how the connection pool has been doing, e.g. how often queries had to
+     * wait for a connection
+     */
+    public static ConnectionPool.Stats getPoolStats() {
+        return pool.stats();
+    }
+
+    /**
+     * The auth token cache every MySqlDataAccess shares. It's shared because they all
+     * share one database, so logging out through one has to be seen by the others.
+     */
+    static AuthCache getAuthCache() {
+        return authCache;
+    }
+
+    /**
+     * @return how often checking an auth token didn't have to go to the database
+     */
+    public static AuthCache.Stats getAuthCacheStats() {
+        return authCache.stats();
+    }
 }
@@ -0,0 +1,463 @@
+package dataAccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import model.AuthData;
+import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.UserData;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sits in front of another DataAccess and keeps the games people are connected to over
+ * the websocket in memory. While a game is open here, its GameData and ChessGame come
+ * from memory and are the real copy: the database is never read for it again until
+ * it's closed.
+ * <p>
+ * Moves made in an open game (addMove and updateGame) are written behind: they're
+ * handed to one background writer, which saves them in the order they were made. If
+ * a write fails, the writer saves the whole game instead the next time it gets a chance,
+ * which covers every move it missed. Closing a game lets its writes finish before it's
+ * dropped from memory.
+ * <p>
+ * Everything else goes straight through to the backend.
+ */
+public class LiveGameCache implements DataAccess
+{
+    /**
+     * A snapshot of how the cache has been doing. hits and misses count getGame calls,
+     * pending is how many writes are waiting on the writer
+     */
+    public record Stats(int live, long hits, long misses, long pending, long failed) {}
+
+    // a game someone is connected to. everything in it is guarded by the LiveGame itself.
+    // saved and dirty only ever change on the writer thread
+    private static class LiveGame
+    {
+        GameData data;
+        boolean open = true;
+        // how many moves have been handed to the writer, and how many of those are saved
+        int queued;
+        int saved;
+        // a write for this game failed, so the next one has to save the whole game
+        boolean dirty;
+
+        LiveGame(GameData data) { this.data = data; }
+    }
+
+    // one write waiting on the writer. it brings the saved game up to ply moves
+    private record Op(int gameID, LiveGame live, int ply, Writes write) {}
+
+    private final DataAccess backend;
+    private final ConcurrentHashMap<Integer, LiveGame> live = new ConcurrentHashMap<>();
+    private final ExecutorService writer;
+    // writes made inside batch, held until the batch is done so they're saved together
+    private final ThreadLocal<List<Op>> pendingOps = new ThreadLocal<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public LiveGameCache(DataAccess backend)
+    {
+        this.backend = backend;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-game-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Loads a game into memory (if it isn't already) and keeps it there until close
+     *
+     * @return the game, or null if there's no game with that ID
+     */
+    public GameData open(int gameID)
+    {
+        while (true)
+        {
+            LiveGame game = live.get(gameID);
+            if (game == null)
+            {
+                // read it outside the map. the read can take a while (and even write, if it
+                // compacts the game), and other games shouldn't have to wait on it. if two
+                // opens race, whoever gets theirs in first wins and the other copy is dropped
+                GameData data = backend.getGame(gameID);
+                if (data == null)
+                    return null;
+                LiveGame loaded = new LiveGame(data);
+                game = live.putIfAbsent(gameID, loaded);
+                if (game == null)
+                    game = loaded;
+            }
+            synchronized (game)
+            {
+                // a closed game is only ever dropped under this lock, so if it's still the
+                // one in the map, it stays there now that it's open again
+                if (live.get(gameID) == game)
+                {
+                    game.open = true;
+                    return game.data;
+                }
+            }
+            // the writer dropped it after it was looked up. its writes are saved by then,
+            // so go around again and load it fresh
+        }
+    }
+
+    /**
+     * Lets go of a game nobody is connected to anymore. It stays in memory until its
+     * writes are saved, and stays for good if someone opens it again before then
+     */
+    public void close(int gameID)
+    {
+        LiveGame game = live.get(gameID);
+        if (game == null)
+            return;
+        synchronized (game)
+        {
+            game.open = false;
+        }
+
+        writer.execute(() -> {
+            // anything that didn't save gets one last try while the game is still here
+            boolean dirty;
+            int queued;
+            synchronized (game)
+            {
+                dirty = game.dirty;
+                queued = game.queued;
+            }
+            if (dirty)
+                runOps(List.of(new Op(gameID, game, queued, null)));
+            synchronized (game)
+            {
+                if (!game.open)
+                    live.remove(gameID, game);
+            }
+        });
+    }
+
+    /**
+     * Waits for every write handed to the writer so far to be saved (or to fail)
+     */
+    public void flush()
+    {
+        try
+        {
+            writer.submit(() -> {}).get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            // an empty task can't fail
+        }
+    }
+
+    public Stats stats()
+    {
+        return new Stats(live.size(), hits.get(), misses.get(), pending.get(), failed.get());
+    }
+
+    // hands writes to the writer, or holds on to them if we're in the middle of a batch
+    private void queue(Op op)
+    {
+        List<Op> batched = pendingOps.get();
+        if (batched != null)
+        {
+            batched.add(op);
+            return;
+        }
+        submit(List.of(op));
+    }
+
+    private void submit(List<Op> ops)
+    {
+        pending.addAndGet(ops.size());
+        writer.execute(() -> {
+            try
+            {
+                runOps(ops);
+            }
+            finally
+            {
+                pending.addAndGet(-ops.size());
+            }
+        });
+    }
+
+    // only ever runs on the writer thread
+    private void runOps(List<Op> ops)
+    {
+        // work out what actually has to be written. a game that lost a write is saved whole,
+        // and a move that's already part of a saved game is skipped
+        List<Writes> writes = new ArrayList<>();
+        Map<LiveGame, Integer> savedThrough = new IdentityHashMap<>();
+        for (Op op : ops)
+        {
+            LiveGame game = op.live();
+            int saved;
+            boolean dirty;
+            int queued;
+            synchronized (game)
+            {
+                saved = savedThrough.getOrDefault(game, game.saved);
+                dirty = game.dirty;
+                queued = game.queued;
+            }
+            if (dirty || op.write() == null)
+            {
+                if (savedThrough.containsKey(game) && saved >= queued)
+                    continue;
+                Whole whole = snapshot(game);
+                writes.add(() -> backend.updateGame(op.gameID(), whole.game()));
+                savedThrough.put(game, whole.ply());
+            }
+            else if (op.ply() > saved)
+            {
+                writes.add(op.write());
+                savedThrough.put(game, op.ply());
+            }
+        }
+        if (writes.isEmpty())
+            return;
+
+        try
+        {
+            backend.batch(() -> {
+                for (Writes write : writes)
+                    write.run();
+            });
+            for (Map.Entry<LiveGame, Integer> entry : savedThrough.entrySet())
+            {
+                LiveGame game = entry.getKey();
+                synchronized (game)
+                {
+                    game.saved = Math.max(game.saved, entry.getValue());
+                    game.dirty = false;
+                }
+            }
+        }
+        catch (DataAccessException | RuntimeException e)
+        {
+            failed.incrementAndGet();
+            for (LiveGame game : savedThrough.keySet())
+            {
+                synchronized (game)
+                {
+                    game.dirty = true;
+                }
+            }
+            System.out.println("Error: couldn't save a live game, saving the whole game next time");
+        }
+    }
+
+    private record Whole(ChessGame game, int ply) {}
+
+    // a copy of the game as it is right now, and how many moves it's made. the copy is so
+    // the writer isn't reading the board while someone moves on it
+    private static Whole snapshot(LiveGame game)
+    {
+        ChessGame current;
+        synchronized (game)
+        {
+            current = game.data.game();
+        }
+        synchronized (current)
+        {
+            synchronized (game)
+            {
+                return new Whole(GameCodec.decode(GameCodec.encode(current)), game.queued);
+            }
+        }
+    }
+
+    public void clear() throws DataAccessException
+    {
+        // let the writer finish first so nothing gets written back after the clear
+        flush();
+        backend.clear();
+        live.clear();
+    }
+
+    public UserData getUser(String username)
+    {
+        return backend.getUser(username);
+    }
+
+    public void createUser(String username, String password, String email)
+    {
+        backend.createUser(username, password, email);
+    }
+
+    public AuthData createAuth(String username)
+    {
+        return backend.createAuth(username);
+    }
+
+    public boolean sessionExists(String authToken)
+    {
+        return backend.sessionExists(authToken);
+    }
+
+    public void deleteSession(String authToken)
+    {
+        backend.deleteSession(authToken);
+    }
+
+    public GameData createGame(String gameName)
+    {
+        return backend.createGame(gameName);
+    }
+
+    public boolean gameExists(String gameName)
+    {
+        return backend.gameExists(gameName);
+    }
+
+    public boolean gameExists(int gameID)
+    {
+        return live.containsKey(gameID) || backend.gameExists(gameID);
+    }
+
+    public GamePage listGames(GameQuery query)
+    {
+        // players are written straight through and the boards aren't listed, so the
+        // backend is never behind on anything this returns
+        return backend.listGames(query);
+    }
+
+    public GameData getGame(int gameId)
+    {
+        LiveGame game = live.get(gameId);
+        if (game == null)
+        {
+            misses.incrementAndGet();
+            return backend.getGame(gameId);
+        }
+        hits.incrementAndGet();
+        synchronized (game)
+        {
+            return game.data;
+        }
+    }
+
+    public boolean addPlayerToGame(int gameId, String authToken, boolean isWhite)
+    {
+        if (!backend.addPlayerToGame(gameId, authToken, isWhite))
+            return false;
+        LiveGame game = live.get(gameId);
+        if (game == null)
+            return true;
+
+        String username = backend.getUsername(authToken);
+        synchronized (game)
+        {
+            GameData old = game.data;
+            game.data = isWhite
+                    ? new GameData(old.gameID(), username, old.blackUsername(), old.gameName(), old.game())
+                    : new GameData(old.gameID(), old.whiteUsername(), username, old.gameName(), old.game());
+        }
+        return true;
+    }
+
+    public String getUsername(String authToken)
+    {
+        return backend.getUsername(authToken);
+    }
+
+    public void updateGame(int gameID, ChessGame chessGame)
+    {
+        LiveGame game = live.get(gameID);
+        if (game == null)
+        {
+            backend.updateGame(gameID, chessGame);
+            return;
+        }
+        if (chessGame == null)
+            return;
+
+        synchronized (game)
+        {
+            GameData old = game.data;
+            game.data = new GameData(old.gameID(), old.whiteUsername(), old.blackUsername(), old.gameName(), chessGame);
+        }
+        // a whole game save, so the op has nothing of its own to write
+        queue(new Op(gameID, game, 0, null));
+    }
+
+    public void addMove(int gameID, ChessMove move)
+    {
+        LiveGame game = live.get(gameID);
+        if (game == null)
+        {
+            backend.addMove(gameID, move);
+            return;
+        }
+
+        int ply;
+        synchronized (game)
+        {
+            ply = ++game.queued;
+        }
+        queue(new Op(gameID, game, ply, () -> backend.addMove(gameID, move)));
+    }
+
+    public void batch(Writes writes) throws DataAccessException
+    {
+        // a batch inside a batch just joins the outer one
+        if (pendingOps.get() != null)
+        {
+            writes.run();
+            return;
+        }
+
+        // writes to live games are collected and handed to the writer together, so they
+        // still end up in one transaction. anything else runs in a batch of its own
+        List<Op> ops = new ArrayList<>();
+        pendingOps.set(ops);
+        try
+        {
+            backend.batch(writes);
+        }
+        finally
+        {
+            pendingOps.remove();
+        }
+        if (!ops.isEmpty())
+            submit(ops);
+    }
+
+    public void removePlayer(int gameID, String username)
+    {
+        backend.removePlayer(gameID, username);
+        LiveGame game = live.get(gameID);
+        if (game == null || username == null)
+            return;
+
+        synchronized (game)
+        {
+            GameData old = game.data;
+            game.data = new GameData(old.gameID(),
+                    username.equals(old.whiteUsername()) ? null : old.whiteUsername(),
+                    username.equals(old.blackUsername()) ? null : old.blackUsername(),
+                    old.gameName(), old.game());
+        }
+    }
+}
@@ -1,25 +1,46 @@
 package dataAccess;
 import chess.ChessGame;
+import chess.ChessMove;
 import model.AuthData;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 public class MemoryDataAccess implements DataAccess
 {
-    // you need a list of users
-    HashSet<UserData> users;
-    HashSet<AuthData> authData;
-    HashSet<GameData> games;
+    // everything is kept in maps so lookups don't have to go through every entry. spark
+    // and the websocket handler call in from their own threads, so they're concurrent maps:
+    // reads never lock, and a change to one game only locks that game's entry
+    ConcurrentHashMap<String, UserData> users;        // by username
+    ConcurrentHashMap<String, AuthData> authData;     // by auth token
+    ConcurrentSkipListMap<Integer, GameData> games;   // by game ID, in order so it can be paged through
+    ConcurrentHashMap<String, Integer> gameIDsByName; // game name to game ID
+
+    // the ID the next game gets. one more than the biggest one handed out so far
+    AtomicInteger nextGameID;
+
+    // accents come apart from their letters in NFD, as marks of their own
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
 
     public MemoryDataAccess()
     {
-        this.games = new HashSet<>();
-        this.users = new HashSet<>();
-        this.authData = new HashSet<>();
+        this.games = new ConcurrentSkipListMap<>();
+        this.users = new ConcurrentHashMap<>();
+        this.authData = new ConcurrentHashMap<>();
+        this.gameIDsByName = new ConcurrentHashMap<>();
+        this.nextGameID = new AtomicInteger(1);
     }
 
 
@@ -28,158 +49,161 @@ public class MemoryDataAccess implements DataAccess
         this.users.clear();
         this.authData.clear();
         this.games.clear();
+        this.gameIDsByName.clear();
+        this.nextGameID.set(1);
     }
 
     public UserData getUser(String username) {
-        // iterate over all the users
-        for (UserData user : this.users)
-        {
-            // if you find one that has that username, return it
-            if (user.username().equals(username))
-                return user;
-        }
-
-        // if nothing shows up, return null
-        return null;
+        // returns null if nobody has that username
+        return username == null ? null : this.users.get(username);
     }
 
     public void createUser(String username, String password, String email)
     {
-        this.users.add(new UserData(username, password, email));
+        this.users.put(username, new UserData(username, password, email));
     }
 
     public AuthData createAuth(String username) {
         // make a new auth token, add it to the list and return it.
         AuthData toAdd = new AuthData(UUID.randomUUID().toString(), username);
-        this.authData.add(toAdd);
+        this.authData.put(toAdd.authToken(), toAdd);
         return toAdd;
     }
 
     public boolean sessionExists(String authToken)
     {
         // see if a session exists with the given auth token
-        for (AuthData data : this.authData)
-        {
-            if (data.authToken().equals(authToken))
-            {
-                return true;
-            }
-        }
-        return false;
+        return authToken != null && this.authData.containsKey(authToken);
     }
 
     public void deleteSession(String authToken)
     {
-        AuthData session = null;
-        // find the session in question
-        for (AuthData data : this.authData)
-        {
-            if (data.authToken().equals(authToken))
-            {
-                session = data;
-            }
-        }
-        if (session != null)
-            this.authData.remove(session);
+        if (authToken != null)
+            this.authData.remove(authToken);
     }
 
     public GameData createGame(String gameName)
     {
-        // get the id. For us, it will be one more than the max of the game ids
-        int gameId = 1;
-        for (GameData game : this.games)
-        {
-            if (game.gameID() >= gameId)
-                gameId = game.gameID() + 1;
-        }
+        // get the id. every game gets its own, even if two are made at the same time
+        int gameId = this.nextGameID.getAndIncrement();
         // just autofill it with blank player names as null for the time being...
         GameData newGame = new GameData(gameId, null, null, gameName, new ChessGame());
-        this.games.add(newGame);
+        this.games.put(gameId, newGame);
+        this.gameIDsByName.put(gameName, gameId);
         return newGame;
     }
 
     public boolean gameExists(String gameName)
     {
-        // go through all the games. if you find one by that name, return true;
-        for (GameData game : this.games)
-        {
-            if (game.gameName().equals(gameName))
-            {
-                return true;
-            }
-        }
-        return false;
+        return gameName != null && this.gameIDsByName.containsKey(gameName);
     }
 
     public boolean gameExists(int gameID)
     {
-        // go through all the games. if you find one by that name, return true;
-        for (GameData game : this.games)
+        return this.games.containsKey(gameID);
+    }
+
+    public GamePage listGames(GameQuery query)
+    {
+        // start after the cursor, and grab one extra to see if there's another page
+        List<GameSummary> page = new ArrayList<>();
+        for (GameData game : this.games.tailMap(query.after(), false).values())
         {
-            if (game.gameID() == gameID)
-            {
-                return true;
-            }
+            if (!matches(game, query))
+                continue;
+            if (page.size() == query.limit())
+                return new GamePage(page, page.get(page.size() - 1).gameID());
+            page.add(new GameSummary(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName()));
         }
-        return false;
+        return new GamePage(page, null);
     }
 
-    public Collection<GameData> listGames()
+    private static boolean matches(GameData game, GameQuery query)
     {
-        return this.games;
+        if (query.namePrefix() != null && !folded(game.gameName()).startsWith(folded(query.namePrefix())))
+            return false;
+        if (query.player() != null && !sameName(query.player(), game.whiteUsername()) && !sameName(query.player(), game.blackUsername()))
+            return false;
+        return !query.openSeats() || game.whiteUsername() == null || game.blackUsername() == null;
+    }
+
+    // mysql compares names with utf8mb4_0900_ai_ci, which ignores case and accents, so the
+    // filters here have to as well or the two would list different games for the same query
+    private static String folded(String text)
+    {
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean sameName(String player, String username)
+    {
+        return username != null && folded(player).equals(folded(username));
     }
 
     public GameData getGame(int gameId)
     {
-        for (GameData game : this.listGames())
-        {
-            if (game.gameID() == gameId)
-                return game;
-        }
-        return null;
+        return this.games.get(gameId);
     }
 
-    public void addPlayerToGame(int gameId, String authToken, boolean isWhite)
+    public boolean addPlayerToGame(int gameId, String authToken, boolean isWhite)
     {
-        // get the data you need to start the process
-        GameData game = this.getGame(gameId);
         String username = this.getUsername(authToken);
 
-        // make the new game
-        GameData newGame;
-        if (isWhite)
-            newGame = new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game());
-        else
-            newGame = new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game());
-
-        // pop the old game out and add the new one in
-        this.games.remove(game);
-        this.games.add(newGame);
+        // check the seat and take it in one swap of the game's entry, so two players joining
+        // at once can't each write over the other's spot, or both get the same one. the skip
+        // list runs this again if someone else swapped the entry first, so whatever an earlier
+        // try decided doesn't count
+        boolean[] claimed = {false};
+        this.games.computeIfPresent(gameId, (id, game) -> {
+            claimed[0] = false;
+            if ((isWhite ? game.whiteUsername() : game.blackUsername()) != null)
+                return game;
+            claimed[0] = true;
+            return isWhite
+                    ? new GameData(game.gameID(), username, game.blackUsername(), game.gameName(), game.game())
+                    : new GameData(game.gameID(), game.whiteUsername(), username, game.gameName(), game.game());
+        });
+        return claimed[0];
     }
 
     public String getUsername(String authToken)
     {
-        // iterate over all the sessions
-        for (AuthData session : this.authData)
-        {
-            // if you find one that has that username, return it
-            if (session.authToken().equals(authToken))
-                return session.username();
-
-        }
-        // if nothing shows up, return null
-        return null;
+        // returns null if there's no session with that token
+        if (authToken == null)
+            return null;
+        AuthData session = this.authData.get(authToken);
+        return session == null ? null : session.username();
     }
 
     @Override
     public void updateGame(int gameID, ChessGame game)
     {
-        // TODO later
+        if (game == null)
+            return;
+        this.games.computeIfPresent(gameID, (id, old) ->
+                new GameData(old.gameID(), old.whiteUsername(), old.blackUsername(), old.gameName(), game));
     }
 
     @Override
-    public void removePlayer(int gameID, String username)
+    public void addMove(int gameID, ChessMove move)
+    {
+        // nothing to do. the game that was moved on is the one stored here
+    }
+
+    @Override
+    public void batch(Writes writes) throws DataAccessException
     {
-        // TODO later
+        // everything here happens right away anyway
+        writes.run();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void removePlayer(int gameID, String username)
+    {
+        if (username == null)
+            return;
+        this.games.computeIfPresent(gameID, (id, game) -> new GameData(game.gameID(),
+                username.equals(game.whiteUsername()) ? null : game.whiteUsername(),
+                username.equals(game.blackUsername()) ? null : game.blackUsername(),
+                game.gameName(), game.game()));
+    }
+}
@@ -1,15 +1,27 @@
 package dataAccess;
 
-import chess.ChessGame;
+import chess.*;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import model.AuthData;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
+import model.GameSummary;
 import model.UserData;
 
-import java.util.Collection;
 import com.google.gson.Gson;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
@@ -42,12 +54,31 @@ public class MySqlDataAccess implements DataAccess{
             `whiteUsername` varchar(256) DEFAULT NULL,
             `blackUsername` varchar(256) DEFAULT NULL,
             `gameName` varchar(256) NOT NULL,
-            `game` TEXT NOT NULL,
-            PRIMARY KEY (`gameID`)
+            `game` BLOB NOT NULL,
+            `lastMoveID` int NOT NULL DEFAULT 0,
+            PRIMARY KEY (`gameID`),
+            INDEX(gameName),
+            INDEX(whiteUsername),
+            INDEX(blackUsername)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+            """,
+
+            // every move made since a game's snapshot (games.game) was saved. the snapshot
+            // says which move it goes up to with lastMoveID
+            """
+            CREATE TABLE IF NOT EXISTS  game_moves (
+            `moveID` int NOT NULL AUTO_INCREMENT,
+            `gameID` int NOT NULL,
+            `move` smallint unsigned NOT NULL,
+            PRIMARY KEY (`moveID`),
+            INDEX(gameID, moveID)
             ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
             """
     };
 
+    // how many logged moves a game can build up before loading it saves a new snapshot
+    private static final int SNAPSHOT_INTERVAL = 32;
+
     public MySqlDataAccess() throws DataAccessException {
         DatabaseManager.createDatabase();
         try (var conn = DatabaseManager.getConnection())
@@ -59,6 +90,9 @@ public class MySqlDataAccess implements DataAccess{
                     preparedStatement.executeUpdate();
                 }
             }
+            migrateGames(conn);
+            migrateMoveLog(conn);
+            migrateListIndexes(conn);
         }
         catch (SQLException e)
         {
@@ -67,22 +101,227 @@ public class MySqlDataAccess implements DataAccess{
         }
     }
 
+    /**
+     * Games used to be stored as Gson JSON in a TEXT column. If the column is still TEXT,
+     * turn it into a BLOB and rewrite every game with GameCodec. readGame can still read
+     * JSON, so a row this misses just gets rewritten the next time its game is saved.
+     */
+    private void migrateGames(Connection conn) throws SQLException
+    {
+        var typeStatement = """
+                SELECT DATA_TYPE FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'games' AND COLUMN_NAME = 'game'""";
+        try (var ps = conn.prepareStatement(typeStatement); var rs = ps.executeQuery())
+        {
+            if (!rs.next() || !rs.getString(1).equalsIgnoreCase("text"))
+                return;
+        }
+
+        // the JSON's utf8 bytes carry over into the BLOB as they are
+        try (var ps = conn.prepareStatement("ALTER TABLE games MODIFY `game` BLOB NOT NULL"))
+        {
+            ps.executeUpdate();
+        }
+
+        Map<Integer, byte[]> converted = new LinkedHashMap<>();
+        try (var ps = conn.prepareStatement("SELECT gameID, game FROM games"); var rs = ps.executeQuery())
+        {
+            while (rs.next())
+            {
+                byte[] stored = rs.getBytes("game");
+                if (isJson(stored))
+                    converted.put(rs.getInt("gameID"), GameCodec.encode(readGame(stored)));
+            }
+        }
+        try (var ps = conn.prepareStatement("UPDATE games SET game = ? WHERE gameID = ?"))
+        {
+            for (var entry : converted.entrySet())
+            {
+                ps.setBytes(1, entry.getValue());
+                ps.setInt(2, entry.getKey());
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Tables made before the move log have no lastMoveID column, so add it
+     */
+    private void migrateMoveLog(Connection conn) throws SQLException
+    {
+        var columnStatement = """
+                SELECT COLUMN_NAME FROM information_schema.COLUMNS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'games' AND COLUMN_NAME = 'lastMoveID'""";
+        try (var ps = conn.prepareStatement(columnStatement); var rs = ps.executeQuery())
+        {
+            if (rs.next())
+                return;
+        }
+        try (var ps = conn.prepareStatement("ALTER TABLE games ADD COLUMN `lastMoveID` int NOT NULL DEFAULT 0"))
+        {
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Tables made before games could be listed by name or player don't have indexes on
+     * those columns, so add them
+     */
+    private void migrateListIndexes(Connection conn) throws SQLException
+    {
+        var indexStatement = """
+                SELECT COLUMN_NAME FROM information_schema.STATISTICS
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'games' AND SEQ_IN_INDEX = 1""";
+        HashSet<String> indexed = new HashSet<>();
+        try (var ps = conn.prepareStatement(indexStatement); var rs = ps.executeQuery())
+        {
+            while (rs.next())
+                indexed.add(rs.getString(1));
+        }
+        for (String column : List.of("gameName", "whiteUsername", "blackUsername"))
+        {
+            if (indexed.contains(column))
+                continue;
+            try (var ps = conn.prepareStatement("ALTER TABLE games ADD INDEX(`" + column + "`)"))
+            {
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static boolean isJson(byte[] stored)
+    {
+        return stored.length > 0 && stored[0] == '{';
+    }
+
+    /**
+     * Reads a game from the games table, whether it was saved with GameCodec or as JSON
+     * from before the switch
+     */
+    private static ChessGame readGame(byte[] stored)
+    {
+        if (!isJson(stored))
+            return GameCodec.decode(stored);
+
+        JsonObject json = JsonParser.parseString(new String(stored, StandardCharsets.UTF_8)).getAsJsonObject();
+        JsonObject board = json.getAsJsonObject("board");
+        if (board == null || !board.has("board"))
+            return new Gson().fromJson(json, ChessGame.class);
+
+        // the original ChessBoard was an 8x8 array of pieces, indexed [row - 1][column - 1]
+        ChessBoard chessBoard = new ChessBoard();
+        JsonArray rows = board.getAsJsonArray("board");
+        for (int i = 0; i < rows.size(); i++)
+        {
+            JsonArray row = rows.get(i).getAsJsonArray();
+            for (int j = 0; j < row.size(); j++)
+            {
+                JsonElement square = row.get(j);
+                if (square.isJsonNull())
+                    continue;
+                var color = ChessGame.TeamColor.valueOf(square.getAsJsonObject().get("color").getAsString());
+                var type = ChessPiece.PieceType.valueOf(square.getAsJsonObject().get("type").getAsString());
+                chessBoard.addPiece(ChessPosition.of(i + 1, j + 1), ChessPiece.of(color, type));
+            }
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(chessBoard);
+        if (json.has("whoseTurn"))
+            game.setTeamTurn(ChessGame.TeamColor.valueOf(json.get("whoseTurn").getAsString()));
+        if (json.has("isOver") && json.get("isOver").getAsBoolean())
+            game.forceGameOver();
+        return game;
+    }
+
+    /**
+     * Plays the moves logged after each game's snapshot onto the game. The result set
+     * has to have gameID, moveID and move columns, ordered by moveID within each game.
+     *
+     * @return the ID of the last move played onto each game, and how many were played.
+     * a game whose log stops replaying is marked broken, and nothing after the bad move
+     * is played onto it
+     */
+    private static Map<Integer, MoveTail> replayMoves(ResultSet rs, Map<Integer, ChessGame> games) throws SQLException
+    {
+        Map<Integer, MoveTail> tails = new HashMap<>();
+        while (rs.next())
+        {
+            int gameID = rs.getInt("gameID");
+            ChessGame game = games.get(gameID);
+            MoveTail tail = tails.get(gameID);
+            if (game == null || (tail != null && tail.broken()))
+                continue;
+            try
+            {
+                game.makeMove(rs.getInt("move"));
+                tails.put(gameID, new MoveTail(rs.getInt("moveID"), tail == null ? 1 : tail.length() + 1, false));
+            }
+            catch (InvalidMoveException e)
+            {
+                // only moves that were already made get logged, so this means the log is broken.
+                // leave the log alone from here on, so whatever's wrong can still be fixed by hand
+                System.out.printf("Error: logged move %d in game %d doesn't replay: %s%n",
+                        rs.getInt("moveID"), gameID, e.getMessage());
+                tails.put(gameID, tail == null ? new MoveTail(0, 0, true)
+                        : new MoveTail(tail.lastMoveID(), tail.length(), true));
+            }
+        }
+        return tails;
+    }
+
+    private record MoveTail(int lastMoveID, int length, boolean broken) {}
+
+    /**
+     * Once a game's move tail gets long, save the rebuilt game as its new snapshot and
+     * drop the moves it now includes, so loading it doesn't replay the whole game
+     */
+    private void compact(int gameID, ChessGame game, int lastMoveID) throws DataAccessException
+    {
+        batch(() -> {
+            executeUpdate("UPDATE games SET game = ?, lastMoveID = ? WHERE gameID = ?", game, lastMoveID, gameID);
+            executeUpdate("DELETE FROM game_moves WHERE gameID = ? AND moveID <= ?", gameID, lastMoveID);
+        });
+    }
+
+    // one write waiting to go out with the rest of its batch
+    private record Write(String statement, Object[] params) {}
+
+    /**
+     * A batch in progress on this thread. Its writes are held until it's done, unless one
+     * of them needs to know what it changed. Then the batch takes a connection and starts
+     * its transaction early, and everything from there on goes out on that connection
+     */
+    private static class Batch {
+        final List<Write> pending = new ArrayList<>();
+        Connection connection;
+    }
+
+    // the batch running on this thread, or null outside of one
+    private final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+
+    /**
+     * Inside a batch the write is only queued up, and 0 comes back since nothing has
+     * been generated yet
+     */
     private int executeUpdate(String statement, Object... params) throws DataAccessException
     {
+        Batch batch = currentBatch.get();
+        if (batch != null)
+        {
+            batch.pending.add(new Write(statement, params));
+            return 0;
+        }
+
         try (var conn = DatabaseManager.getConnection()) {
             try (var ps = conn.prepareStatement(statement, RETURN_GENERATED_KEYS)) {
-                for (var i = 0; i < params.length; i++) {
-                    var param = params[i];
-                    if (param instanceof String p) ps.setString(i + 1, p);
-                    else if (param instanceof Integer p) ps.setInt(i + 1, p);
-                    else if (param instanceof ChessGame p) ps.setString(i + 1, new Gson().toJson(p));
-                    else if (param == null) ps.setNull(i + 1, NULL);
-                }
+                setParams(ps, params);
                 ps.executeUpdate();
 
-                var rs = ps.getGeneratedKeys();
-                if (rs.next()) {
-                    return rs.getInt(1);
+                try (var rs = ps.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
                 }
 
                 return 0;
@@ -92,19 +331,187 @@ public class MySqlDataAccess implements DataAccess{
         }
 
     }
-    public void clear() throws DataAccessException {
-        try {
-            var statement = "DELETE from authData;";
-            executeUpdate(statement);
-            statement = "DELETE from users;";
-            executeUpdate(statement);
-            statement = "DELETE from games;";
-            executeUpdate(statement);
+
+    /**
+     * Like executeUpdate, but for a write whose caller needs to know whether it changed
+     * anything, so it goes out right away, even inside a batch. There it runs in the
+     * batch's transaction, after the writes the batch already has
+     *
+     * @return how many rows it changed
+     */
+    private int executeCounted(String statement, Object... params) throws DataAccessException
+    {
+        Batch batch = currentBatch.get();
+        try
+        {
+            if (batch == null)
+            {
+                try (var conn = DatabaseManager.getConnection(); var ps = conn.prepareStatement(statement))
+                {
+                    setParams(ps, params);
+                    return ps.executeUpdate();
+                }
+            }
+
+            if (batch.connection == null)
+            {
+                batch.connection = DatabaseManager.getConnection();
+                batch.connection.setAutoCommit(false);
+            }
+            sendWrites(batch.connection, batch.pending);
+            batch.pending.clear();
+            try (var ps = batch.connection.prepareStatement(statement))
+            {
+                setParams(ps, params);
+                return ps.executeUpdate();
+            }
+        }
+        catch (SQLException e)
+        {
+            throw new DataAccessException(String.format("unable to update database: %s, %s", statement, e.getMessage()));
+        }
+    }
+
+    private static void setParams(PreparedStatement ps, Object... params) throws SQLException
+    {
+        for (var i = 0; i < params.length; i++) {
+            var param = params[i];
+            if (param instanceof String p) ps.setString(i + 1, p);
+            else if (param instanceof Integer p) ps.setInt(i + 1, p);
+            else if (param instanceof ChessGame p) ps.setBytes(i + 1, GameCodec.encode(p));
+            else if (param == null) ps.setNull(i + 1, NULL);
         }
-        catch (DataAccessException e)
+    }
+
+    /**
+     * Runs a list of writes on one connection in one transaction
+     */
+    private void runWrites(List<Write> writes) throws DataAccessException
+    {
+        if (writes.isEmpty())
+            return;
+        // one write is already all or nothing, and turning autocommit off, committing and
+        // turning it back on would be three more trips to the database than the write itself
+        if (writes.size() == 1)
+        {
+            executeUpdate(writes.get(0).statement(), writes.get(0).params());
+            return;
+        }
+
+        try (var conn = DatabaseManager.getConnection())
+        {
+            conn.setAutoCommit(false);
+            commit(conn, writes);
+        }
+        catch (SQLException e)
         {
+            throw new DataAccessException(String.format("unable to update database: %s", e.getMessage()));
+        }
+    }
+
+    // sends the last of a transaction's writes and commits it. anything going wrong rolls
+    // the whole transaction back
+    private static void commit(Connection conn, List<Write> writes) throws SQLException
+    {
+        try
+        {
+            sendWrites(conn, writes);
+            conn.commit();
+        }
+        catch (SQLException e)
+        {
+            conn.rollback();
             throw e;
         }
+        finally
+        {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    // writes in a row that use the same SQL go out together as a single JDBC batch
+    private static void sendWrites(Connection conn, List<Write> writes) throws SQLException
+    {
+        int i = 0;
+        while (i < writes.size())
+        {
+            String statement = writes.get(i).statement();
+            try (var ps = conn.prepareStatement(statement))
+            {
+                for (; i < writes.size() && writes.get(i).statement().equals(statement); i++)
+                {
+                    setParams(ps, writes.get(i).params());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Reads inside the batch go straight to the database, so they don't see the batch's
+     * own writes. A batch started inside another one just joins it.
+     */
+    @Override
+    public void batch(Writes writes) throws DataAccessException
+    {
+        if (currentBatch.get() != null)
+        {
+            writes.run();
+            return;
+        }
+
+        Batch batch = new Batch();
+        currentBatch.set(batch);
+        boolean done = false;
+        try
+        {
+            writes.run();
+            done = true;
+        }
+        finally
+        {
+            currentBatch.remove();
+            // a batch that gave up partway never commits, so nothing it already sent sticks
+            if (!done && batch.connection != null)
+                rollBack(batch.connection);
+        }
+
+        if (batch.connection == null)
+        {
+            runWrites(batch.pending);
+            return;
+        }
+        try (var conn = batch.connection)
+        {
+            commit(conn, batch.pending);
+        }
+        catch (SQLException e)
+        {
+            throw new DataAccessException(String.format("unable to update database: %s", e.getMessage()));
+        }
+    }
+
+    private static void rollBack(Connection conn)
+    {
+        try (conn)
+        {
+            conn.rollback();
+            conn.setAutoCommit(true);
+        }
+        catch (SQLException e)
+        {
+            // closing it gives it back to the pool, which rolls back anything still open
+        }
+    }
+
+    public void clear() throws DataAccessException {
+        runWrites(List.of(
+                new Write("DELETE from authData;", new Object[0]),
+                new Write("DELETE from users;", new Object[0]),
+                new Write("DELETE from games;", new Object[0]),
+                new Write("DELETE from game_moves;", new Object[0])));
+        DatabaseManager.getAuthCache().invalidateAll();
     }
 
     public UserData getUser(String username) {
@@ -153,7 +560,11 @@ public class MySqlDataAccess implements DataAccess{
         String statement = "INSERT INTO authData (username, authToken) VALUES (?,?)";
         try
         {
+            AuthCache cache = DatabaseManager.getAuthCache();
+            long stamp = cache.stamp();
             executeUpdate(statement, username, authToken);
+            // it's about to be used, so there's no point making that go to the database
+            cache.put(authToken, username, stamp);
         }
         catch (Exception e)
         {
@@ -164,24 +575,7 @@ public class MySqlDataAccess implements DataAccess{
     }
 
     public boolean sessionExists(String authToken) {
-        try (var conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT authToken FROM authData WHERE authToken=?";
-            try (var ps = conn.prepareStatement(statement))
-            {
-                ps.setString(1, authToken);
-                try (var rs = ps.executeQuery())
-                {
-                    return rs.next();
-                }
-            }
-
-        }
-        catch (Exception e)
-        {
-            System.out.println("you need to figure out what to do with this");
-            throw new RuntimeException();
-        }
-        //return false;
+        return this.getUsername(authToken) != null;
     }
 
     public void deleteSession(String authToken) {
@@ -189,6 +583,8 @@ public class MySqlDataAccess implements DataAccess{
         try
         {
             executeUpdate(statement, authToken);
+            // after the delete, so a lookup racing with it can't put the token back
+            DatabaseManager.getAuthCache().invalidate(authToken);
         }
         catch (Exception e)
         {
@@ -207,10 +603,9 @@ public class MySqlDataAccess implements DataAccess{
 
         var statement = "INSERT INTO games (gameName, game) VALUES (?,?)";
         ChessGame newGame = new ChessGame();
-        var gameJson = new Gson().toJson(newGame);
         try
         {
-            var id = executeUpdate(statement, gameName, gameJson);
+            var id = executeUpdate(statement, gameName, newGame);
             return new GameData(id, null, null, gameName, newGame);
         } catch (DataAccessException e) {System.out.println("you need to figure out what to do with this");
 
@@ -262,24 +657,48 @@ public class MySqlDataAccess implements DataAccess{
 //        return false;
     }
 
-    public Collection<GameData> listGames() {
-        Collection<GameData> toReturn = new HashSet<>();
+    public GamePage listGames(GameQuery query) {
+        // only the summary columns, so no game has to be read or replayed. the filters
+        // are all on indexed columns, and the cursor walks the primary key
+        StringBuilder statement = new StringBuilder(
+                "SELECT gameID, whiteUsername, blackUsername, gameName FROM games WHERE gameID > ?");
+        List<Object> params = new ArrayList<>();
+        params.add(query.after());
+        if (query.namePrefix() != null)
+        {
+            statement.append(" AND gameName LIKE ?");
+            params.add(escapeLike(query.namePrefix()) + "%");
+        }
+        if (query.player() != null)
+        {
+            statement.append(" AND (whiteUsername = ? OR blackUsername = ?)");
+            params.add(query.player());
+            params.add(query.player());
+        }
+        if (query.openSeats())
+            statement.append(" AND (whiteUsername IS NULL OR blackUsername IS NULL)");
+        // one extra row says whether there's another page
+        statement.append(" ORDER BY gameID LIMIT ?");
+        params.add(query.limit() + 1);
+
+        List<GameSummary> page = new ArrayList<>();
+        Integer nextCursor = null;
         try (var conn = DatabaseManager.getConnection())
         {
-            var statement = "SELECT * FROM games";
-            try (var ps = conn.prepareStatement(statement))
+            try (var ps = conn.prepareStatement(statement.toString()))
             {
+                setParams(ps, params.toArray());
                 try (var rs = ps.executeQuery())
                 {
                     while (rs.next())
                     {
-                        var gameJson = rs.getString("game");
-                        var gameName = rs.getString("gameName");
-                        var whiteUsername = rs.getString("whiteUsername");
-                        var blackUsername = rs.getString("blackUsername");
-                        var game = new Gson().fromJson(gameJson, ChessGame.class);
-                        var gameId = rs.getInt("gameID");
-                        toReturn.add(new GameData(gameId, whiteUsername, blackUsername, gameName, game));
+                        if (page.size() == query.limit())
+                        {
+                            nextCursor = page.get(page.size() - 1).gameID();
+                            break;
+                        }
+                        page.add(new GameSummary(rs.getInt("gameID"), rs.getString("whiteUsername"),
+                                rs.getString("blackUsername"), rs.getString("gameName")));
                     }
                 }
             }
@@ -289,54 +708,88 @@ public class MySqlDataAccess implements DataAccess{
             System.out.println("you need to figure out what to do with this");
             throw new RuntimeException();
         }
-        return toReturn;
+        return new GamePage(page, nextCursor);
+    }
+
+    // so a name with % or _ in it only matches itself
+    private static String escapeLike(String text)
+    {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     public GameData getGame(int gameId) {
-        try (var conn = DatabaseManager.getConnection()) {
-            var statement = "SELECT * FROM games WHERE gameID=?";
-            try (var ps = conn.prepareStatement(statement))
-            {
-                ps.setInt(1, gameId);
-                try (var rs = ps.executeQuery())
+        try {
+            GameData gameData = null;
+            MoveTail tail = null;
+            try (var conn = DatabaseManager.getConnection()) {
+                int lastMoveID = 0;
+                var statement = "SELECT * FROM games WHERE gameID=?";
+                try (var ps = conn.prepareStatement(statement))
                 {
-                    if (rs.next())
+                    ps.setInt(1, gameId);
+                    try (var rs = ps.executeQuery())
                     {
-                        var gameJson = rs.getString("game");
-                        var gameName = rs.getString("gameName");
-                        var whiteUsername = rs.getString("whiteUsername");
-                        var blackUsername = rs.getString("blackUsername");
-                        var game = new Gson().fromJson(gameJson, ChessGame.class);
-                        return new GameData(gameId, whiteUsername, blackUsername, gameName, game);
+                        if (rs.next())
+                        {
+                            var gameBytes = rs.getBytes("game");
+                            var gameName = rs.getString("gameName");
+                            var whiteUsername = rs.getString("whiteUsername");
+                            var blackUsername = rs.getString("blackUsername");
+                            var game = readGame(gameBytes);
+                            lastMoveID = rs.getInt("lastMoveID");
+                            gameData = new GameData(gameId, whiteUsername, blackUsername, gameName, game);
+                        }
+                    }
+                }
+                if (gameData == null)
+                    return null;
+
+                // then catch the snapshot up with the moves made since it was saved
+                var movesStatement = "SELECT gameID, moveID, move FROM game_moves WHERE gameID=? AND moveID>? ORDER BY moveID";
+                try (var ps = conn.prepareStatement(movesStatement))
+                {
+                    ps.setInt(1, gameId);
+                    ps.setInt(2, lastMoveID);
+                    try (var rs = ps.executeQuery())
+                    {
+                        tail = replayMoves(rs, Map.of(gameId, gameData.game())).get(gameId);
                     }
                 }
             }
 
+            // compacting takes a connection of its own, so this waits until the read one has
+            // gone back. holding it while asking for another could leave every load doing the
+            // same with the pool empty. a log that didn't fully replay is never saved over,
+            // or the moves that didn't make it in would be deleted for good
+            if (tail != null && !tail.broken() && tail.length() >= SNAPSHOT_INTERVAL)
+                compact(gameId, gameData.game(), tail.lastMoveID());
+            return gameData;
         }
         catch (Exception e)
         {
             System.out.println("you need to figure out what to do with this");
             throw new RuntimeException();
         }
-        return null;
     }
 
-    public void addPlayerToGame(int gameId, String authToken, boolean isWhite) {
+    public boolean addPlayerToGame(int gameId, String authToken, boolean isWhite) {
         String username = this.getUsername(authToken);
         if (authToken == null)
             throw new RuntimeException();
+        // the seat is only taken if it's still empty, so two players going for it at once
+        // can't both get it. whoever didn't changes no rows
         String whiteStatement = """
                         UPDATE games
                         SET whiteUsername =?
-                        WHERE gameID =?;""";
+                        WHERE gameID =? AND whiteUsername IS NULL;""";
         String blackStatement = """
                         UPDATE games
                         SET blackUsername =?
-                        WHERE gameID =?;""";
+                        WHERE gameID =? AND blackUsername IS NULL;""";
         String statement = isWhite ? whiteStatement : blackStatement;
         try
         {
-            executeUpdate(statement, username, gameId);
+            return executeCounted(statement, username, gameId) == 1;
         } catch (DataAccessException e)
         {
             System.out.println("you need to figure out what to do with this");
@@ -345,6 +798,22 @@ public class MySqlDataAccess implements DataAccess{
     }
 
     public String getUsername(String authToken) {
+        if (authToken == null)
+            return null;
+
+        // most lookups are for a token that was just used, so try the cache first
+        AuthCache cache = DatabaseManager.getAuthCache();
+        String username = cache.get(authToken);
+        if (username != null)
+            return username;
+
+        long stamp = cache.stamp();
+        username = this.selectUsername(authToken);
+        cache.put(authToken, username, stamp);
+        return username;
+    }
+
+    private String selectUsername(String authToken) {
         try (var conn = DatabaseManager.getConnection()) {
             var statement = "SELECT username FROM authData WHERE authToken=?";
             try (var ps = conn.prepareStatement(statement))
@@ -374,13 +843,35 @@ public class MySqlDataAccess implements DataAccess{
         if (game == null)
             return;
 
-        String statement = "UPDATE games SET game = ? WHERE gameID = ?";
+        // the whole game becomes the new snapshot, so none of its logged moves are needed anymore
+        String statement = """
+                UPDATE games
+                SET game = ?, lastMoveID = (SELECT COALESCE(MAX(moveID), 0) FROM game_moves WHERE gameID = ?)
+                WHERE gameID = ?;""";
+
+        try
+        {
+            batch(() -> {
+                executeUpdate(statement, game, gameID, gameID);
+                executeUpdate("DELETE FROM game_moves WHERE gameID = ?", gameID);
+            });
+        } catch (DataAccessException e) {System.out.println("you need to figure out what to do with this");
+
+        }
+    }
+
+    @Override
+    public void addMove(int gameID, ChessMove move)
+    {
+        if (move == null)
+            return;
 
-        var gameJson = new Gson().toJson(game);
+        // just the move, packed into 2 bytes. getGame plays it back onto the snapshot
+        String statement = "INSERT INTO game_moves (gameID, move) VALUES (?,?)";
 
         try
         {
-            var id = executeUpdate(statement, gameJson, gameID);
+            executeUpdate(statement, gameID, PackedMove.fromChessMove(move));
         } catch (DataAccessException e) {System.out.println("you need to figure out what to do with this");
 
         }
@@ -0,0 +1,85 @@
+package server;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import server.websocket.GameActors;
+
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * What the server runs its work on. Every route and websocket command spends most of its
+ * time waiting on MySQL, so with platform threads the pool runs out of threads long before
+ * the box runs out of CPU. With virtual threads, a waiting request gives its carrier thread
+ * back to something that can actually use it.
+ */
+public enum ExecutionMode {
+    // a jetty thread pool for routes, and a fixed pool for websocket commands
+    PLATFORM,
+    // a virtual thread per request, and per game's mailbox while it has commands waiting
+    VIRTUAL;
+
+    // every platform thread the server makes to run routes and commands goes in here, so
+    // they can be counted without going by thread names
+    static final ThreadGroup WORKERS = new ThreadGroup("chess-workers");
+
+    /**
+     * Reads server.threads from server.properties. A -Dserver.threads system property
+     * wins over the file, so a benchmark can flip it without a rebuild
+     */
+    public static ExecutionMode configured()
+    {
+        String value = System.getProperty("server.threads");
+        if (value == null)
+        {
+            try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("server.properties"))
+            {
+                // no file just means the defaults
+                if (propStream != null)
+                {
+                    Properties props = new Properties();
+                    props.load(propStream);
+                    value = props.getProperty("server.threads");
+                }
+            }
+            catch (Exception ex)
+            {
+                throw new RuntimeException("unable to process server.properties. " + ex.getMessage());
+            }
+        }
+        return value == null ? PLATFORM : valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return what each game's mailbox runs on
+     */
+    Executor commandExecutor()
+    {
+        return this == VIRTUAL
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("game-actor-", 0).factory())
+                : GameActors.defaultExecutor(WORKERS);
+    }
+
+    /**
+     * @return what jetty runs routes on. the platform pool has spark's usual sizes
+     */
+    ThreadPool routePool()
+    {
+        return this == VIRTUAL
+                ? new VirtualThreadPool()
+                : new QueuedThreadPool(200, 8, 60000, -1, null, WORKERS);
+    }
+
+    /**
+     * @return how many threads the server has made to run routes and commands that are
+     * still around. virtual threads run on the jdk's own carrier threads instead, so in that
+     * mode there are none, and the carriers show up in ExecutionStats' count of every
+     * platform thread
+     */
+    int workerThreads()
+    {
+        return WORKERS.activeCount();
+    }
+}
@@ -0,0 +1,103 @@
+package server;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the work the server does, how many platform threads are doing it, and how busy
+ * the CPUs are. Run the same load in both modes and compare: with platform threads, the
+ * pool fills up with threads sitting blocked on the database while the CPUs sit idle, and
+ * with virtual threads, a thread per core gets through the same work.
+ */
+public class ExecutionStats {
+
+    /**
+     * How one kind of work has been going. averageMillis is over everything finished so far
+     */
+    public record Work(long handled, int inFlight, int peakInFlight, double averageMillis) {}
+
+    /**
+     * A snapshot of both kinds of work. workerThreads is how many threads the server made
+     * for it (see ExecutionMode.workerThreads). platformThreads and peakPlatformThreads
+     * count every platform thread in the JVM, now and at most so far, which takes in the
+     * virtual thread carriers too, so the two modes can be compared. cpuLoad is how busy the
+     * server process has kept the CPUs lately, from 0 to 1. -1 if the JVM can't tell.
+     */
+    public record Stats(ExecutionMode mode, Work routes, Work commands, int workerThreads,
+                        int platformThreads, int peakPlatformThreads, double cpuLoad) {}
+
+    private final ExecutionMode mode;
+    private final Counter routes = new Counter();
+    private final Counter commands = new Counter();
+    private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    public ExecutionStats(ExecutionMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Call when a route starts
+     *
+     * @return what to hand routeFinished when it's done
+     */
+    public long routeStarted() {
+        return routes.start();
+    }
+
+    public void routeFinished(long started) {
+        routes.finish(started);
+    }
+
+    /**
+     * Wraps an executor so everything run on it is counted as websocket commands
+     */
+    public Executor commands(Executor executor) {
+        return task -> executor.execute(() -> {
+            long started = commands.start();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                commands.finish(started);
+            }
+        });
+    }
+
+    public Stats stats() {
+        double cpuLoad = os instanceof com.sun.management.OperatingSystemMXBean process
+                ? process.getProcessCpuLoad() : -1;
+        return new Stats(mode, routes.snapshot(), commands.snapshot(), mode.workerThreads(),
+                threads.getThreadCount(), threads.getPeakThreadCount(), cpuLoad < 0 ? -1 : cpuLoad);
+    }
+
+    private static class Counter {
+        private final AtomicLong handled = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+
+        long start() {
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return System.nanoTime();
+        }
+
+        void finish(long started) {
+            totalNanos.addAndGet(System.nanoTime() - started);
+            handled.incrementAndGet();
+            inFlight.decrementAndGet();
+        }
+
+        Work snapshot() {
+            long count = handled.get();
+            double average = count == 0 ? 0 : totalNanos.get() / (double) count / 1_000_000;
+            return new Work(count, inFlight.get(), peakInFlight.get(), average);
+        }
+    }
+}
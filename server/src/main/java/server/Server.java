@@ -2,10 +2,13 @@ package server;
 
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
+import dataAccess.LiveGameCache;
 import dataAccess.MemoryDataAccess;
 import dataAccess.MySqlDataAccess;
 import server.websocket.WebSocketHandler;
 import spark.*;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 import com.google.gson.Gson;
 import service.*;
 import model.*;
@@ -15,41 +18,64 @@ import java.util.Map;
 
 
 public class Server {
+    private static final String ROUTE_STARTED = "routeStarted";
+
     private ClearService clearService;
     private UserService userService;
     private GameService gameService;
     private WebSocketHandler webSocketHandler;
+    // platform or virtual threads, and how the work on them is going
+    private final ExecutionMode executionMode;
+    private final ExecutionStats executionStats;
 
     public Server()
     {
+        executionMode = ExecutionMode.configured();
+        executionStats = new ExecutionStats(executionMode);
+
         DataAccess dataAccess;
         try
         {
             dataAccess = new MySqlDataAccess();
-            clearService = new ClearService(dataAccess);
-            userService = new UserService(dataAccess);
-            gameService = new GameService(dataAccess);
         }
         catch (DataAccessException e)
         {
             dataAccess = new MemoryDataAccess();
-            clearService = new ClearService(dataAccess);
-            userService = new UserService(dataAccess);
-            gameService = new GameService(dataAccess);
         }
+        // games people are connected to are kept in memory, so everyone goes through the
+        // same cache and nothing ends up looking at an older copy in the database
+        LiveGameCache liveGames = new LiveGameCache(dataAccess);
+        clearService = new ClearService(liveGames);
+        userService = new UserService(liveGames);
+        gameService = new GameService(liveGames);
+
         // make the websocket handler, and give it access to all the data
-        webSocketHandler = new WebSocketHandler(dataAccess);
+        webSocketHandler = new WebSocketHandler(liveGames,
+                executionStats.commands(executionMode.commandExecutor()));
 
 
     }
 
     public int run(int desiredPort) {
+        // has to be set before spark starts jetty. set it either way, in case an earlier
+        // server in the same jvm went the other way
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY,
+                new EmbeddedJettyFactory().withThreadPool(executionMode.routePool()));
+
         Spark.port(desiredPort);
 
         Spark.webSocket("/connect", webSocketHandler);
 
         Spark.staticFiles.location("web");
 
+        // time every route, whichever way it turns out
+        Spark.before((req, res) -> req.attribute(ROUTE_STARTED, executionStats.routeStarted()));
+        Spark.afterAfter((req, res) -> {
+            Long started = req.attribute(ROUTE_STARTED);
+            if (started != null)
+                executionStats.routeFinished(started);
+        });
+
         // Register your endpoints and handle exceptions here.
         Spark.post("/user", this::registerUser);
         Spark.delete("/db", this::clearApp);
@@ -57,12 +83,21 @@ public class Server {
         Spark.delete("/session", this::logoutUser);
         Spark.post("/game", this::createGame);
         Spark.get("/game", this::listGames);
+        Spark.get("/game/:gameID", this::getGame);
         Spark.put("/game", this::joinGame);
 
         Spark.awaitInitialization();
         return Spark.port();
     }
 
+    /**
+     * @return how the routes and websocket commands have been going, and how busy the
+     * threads running them are
+     */
+    public ExecutionStats.Stats getExecutionStats() {
+        return executionStats.stats();
+    }
+
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
@@ -102,10 +137,24 @@ public class Server {
     private Object listGames(Request req, Response res)
     {
         String authToken = req.headers("authorization");
-        try  // return a list of games if successful
+        try  // return a page of games if successful
         {
-            Collection<GameData> games = gameService.listGames(authToken);
-            return new Gson().toJson(Map.of("games", games.toArray()));
+            // everything in the query string is optional. with none of it, this is the first page
+            GameQuery query;
+            try
+            {
+                query = new GameQuery(req.queryParams("name"),
+                        req.queryParams("player"),
+                        Boolean.parseBoolean(req.queryParams("open")),
+                        req.queryParams("after") == null ? 0 : Integer.parseInt(req.queryParams("after")),
+                        req.queryParams("limit") == null ? GameService.DEFAULT_PAGE_SIZE : Integer.parseInt(req.queryParams("limit")));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new DataAccessException("Error: bad request");
+            }
+            GamePage page = gameService.listGames(authToken, query);
+            return new Gson().toJson(page);
         }
         catch (DataAccessException e)
         {
@@ -114,6 +163,8 @@ public class Server {
 
             if (error.message().equals("Error: unauthorized"))
                 res.status(401);
+            else if (error.message().equals("Error: bad request"))
+                res.status(400);
             else
                 res.status(500);
             System.out.println(error.message());
@@ -123,6 +174,38 @@ public class Server {
 
     }
 
+    private Object getGame(Request req, Response res)
+    {
+        String authToken = req.headers("authorization");
+        try  // return the whole game, board and all, if successful
+        {
+            int gameID;
+            try
+            {
+                gameID = Integer.parseInt(req.params(":gameID"));
+            }
+            catch (NumberFormatException e)
+            {
+                throw new DataAccessException("Error: bad request");
+            }
+            return new Gson().toJson(gameService.getGame(authToken, gameID));
+        }
+        catch (DataAccessException e)
+        {
+            ErrorData error = new ErrorData(e.getMessage());
+            String toReturn = new Gson().toJson(error);
+
+            if (error.message().equals("Error: unauthorized"))
+                res.status(401);
+            else if (error.message().equals("Error: bad request"))
+                res.status(400);
+            else
+                res.status(500);
+            System.out.println(error.message());
+            return toReturn;
+        }
+    }
+
     private Object createGame(Request req, Response res)
     {
         String authToken = req.headers("authorization");
@@ -0,0 +1,101 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A jetty thread pool that runs every job on a new virtual thread. There's no limit to run
+ * out of, so a request waiting on the database never keeps another one from starting; the
+ * database connection pool is what actually caps how much runs against MySQL at once.
+ * <p>
+ * Jetty starts and stops it along with the server.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    @Override
+    protected void doStart() throws Exception
+    {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-", 0).factory());
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception
+    {
+        super.doStop();
+        ExecutorService stopping = executor;
+        if (stopping == null)
+            return;
+        // jetty has already closed the connectors, so give whatever's left a moment to finish
+        stopping.shutdown();
+        if (!stopping.awaitTermination(5, TimeUnit.SECONDS))
+            stopping.shutdownNow();
+    }
+
+    @Override
+    public void execute(Runnable job)
+    {
+        ExecutorService current = executor;
+        if (current == null)
+            throw new RejectedExecutionException("Error: thread pool isn't running");
+        current.execute(() -> {
+            running.incrementAndGet();
+            try
+            {
+                job.run();
+            }
+            finally
+            {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Waits until the pool has stopped and everything on it has finished
+     */
+    @Override
+    public void join() throws InterruptedException
+    {
+        // virtual threads don't keep the jvm alive, so spark's thread waiting here is what does
+        while (!isStopped() || (executor != null && !executor.isTerminated()))
+        {
+            ExecutorService current = executor;
+            if (current != null && current.isShutdown())
+                current.awaitTermination(1, TimeUnit.SECONDS);
+            else
+                Thread.sleep(100);
+        }
+    }
+
+    /**
+     * @return how many jobs are running right now
+     */
+    @Override
+    public int getThreads()
+    {
+        return running.get();
+    }
+
+    // a new thread is made for every job, so none are ever sitting idle, and it never runs low
+    @Override
+    public int getIdleThreads()
+    {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads()
+    {
+        return false;
+    }
+}
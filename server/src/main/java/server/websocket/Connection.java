@@ -8,17 +8,21 @@ public class Connection {
     public String visitorName;
     public Session session;
     public Role role;
+    // shared by every connection on the same session, so messages go out in order
+    public Outbox outbox;
 
 
 
-    public Connection(String visitorName, Session session, Role role) {
+    public Connection(String visitorName, Session session, Role role, Outbox outbox) {
         this.visitorName = visitorName;
         this.session = session;
         this.role = role;
+        this.outbox = outbox;
     }
 
     public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+        // doesn't wait for it to actually go out
+        outbox.send(msg);
     }
 
     public enum Role
@@ -6,30 +6,67 @@ import webSocketMessages.serverMessages.LoadGame;
 import webSocketMessages.serverMessages.*;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class ConnectionManager {
-    public final ConcurrentHashMap<Integer, List<Connection>> connections = new ConcurrentHashMap<>();
+    // how many messages can be waiting on one session before it's dropped for being too slow
+    static final int OUTBOX_LIMIT = 256;
+
+    // everyone on each game, by session. adding and removing go through compute, so a
+    // game's map is never changed while it's being dropped for being empty, and
+    // broadcasting can go through it while people come and go without anything breaking
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<Session, Connection>> games = new ConcurrentHashMap<>();
+    // the other way around: every game a session is on, so finding or removing a session's
+    // connection never means going through everyone on the game
+    private final ConcurrentHashMap<Session, ConcurrentHashMap<Integer, Connection>> sessions = new ConcurrentHashMap<>();
+    // everything sent to a session goes through its outbox, so nothing waits on a slow one
+    private final ConcurrentHashMap<Session, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Sends a message to a session without waiting for it to go out
+     */
+    public void send(Session session, String message) {
+        outbox(session).send(message);
+    }
+
+    /**
+     * Takes a closed session off every game it was on and forgets about it
+     *
+     * @return the games it was on, and its connection on each
+     */
+    public Map<Integer, Connection> closed(Session session) {
+        Outbox outbox = outboxes.remove(session);
+        if (outbox != null)
+            outbox.close();
+
+        Map<Integer, Connection> removed = sessions.remove(session);
+        if (removed == null)
+            return Map.of();
+        for (Integer gameID : removed.keySet())
+            removeFromGame(gameID, session);
+        return removed;
+    }
+
+    private Outbox outbox(Session session) {
+        return outboxes.computeIfAbsent(session, s -> new Outbox(s, OUTBOX_LIMIT));
+    }
 
     public void add(int gameID, String visitorName, Session session, Connection.Role role) throws IOException {
-        // create a temporary Integer since you need it for the hash map
-        Integer gameIDInteger = Integer.valueOf(gameID);
-        // get the old list of connections on that specific game, and add the new connection
-        List<Connection> tempList = connections.get(gameIDInteger);
-        if (tempList == null)
-        {
-            tempList = new ArrayList<>();
-        }
         // TODO: make sure that role isn't already filled
 
         // make the new connection, based on the provided information
-        var connection = new Connection(visitorName, session, role);
+        var connection = new Connection(visitorName, session, role, outbox(session));
 
-        tempList.add(connection);
-        connections.put(Integer.valueOf(gameIDInteger), tempList);
+        // put it on the game, making the game's map if this is the first one
+        games.compute(gameID, (id, gameConnections) -> {
+            if (gameConnections == null)
+                gameConnections = new ConcurrentHashMap<>();
+            gameConnections.put(session, connection);
+            return gameConnections;
+        });
+        sessions.computeIfAbsent(session, s -> new ConcurrentHashMap<>()).put(gameID, connection);
 
         // send the game to the new person
         LoadGame loadGame = new LoadGame(new ChessGame());
@@ -37,46 +74,83 @@ public class ConnectionManager {
             connection.send(loadGame.toJSON());
     }
 
+    /**
+     * @return the session's connection on the game, or null if it isn't on it
+     */
+    public Connection get(int gameID, Session session) {
+        Map<Integer, Connection> sessionGames = sessions.get(session);
+        return sessionGames == null ? null : sessionGames.get(gameID);
+    }
+
+    /**
+     * Takes a session off a game
+     *
+     * @return the connection it had on the game, or null if it wasn't on it
+     */
+    public Connection remove(int gameID, Session session) {
+        Map<Integer, Connection> sessionGames = sessions.get(session);
+        Connection removed = sessionGames == null ? null : sessionGames.remove(gameID);
+        removeFromGame(gameID, session);
+        return removed;
+    }
+
+    // drops the game's map once the last person is gone
+    private void removeFromGame(int gameID, Session session) {
+        games.computeIfPresent(gameID, (id, gameConnections) -> {
+            gameConnections.remove(session);
+            return gameConnections.isEmpty() ? null : gameConnections;
+        });
+    }
+
+    /**
+     * @return whether nobody is connected to the game
+     */
+    public boolean isEmpty(int gameID) {
+        return !games.containsKey(gameID);
+    }
+
     public void removePlayer(int gameID, String visitorName)
     {
-        Integer gameIDInteger = Integer.valueOf(gameID);
-        List<Connection> tempList = connections.get(gameIDInteger);
-        for (Connection connection : tempList)
+        Map<Session, Connection> gameConnections = games.get(gameID);
+        if (gameConnections == null)
+            return;
+        for (Connection connection : gameConnections.values())
         {
             if (connection.visitorName.equals(visitorName))
             {
-                tempList.remove(connection);
+                remove(gameID, connection.session);
             }
         }
-        connections.put(gameIDInteger, tempList);
     }
 
     public void broadcast(int gameID, ServerMessage serverMessage, Collection<String> exclusions) throws IOException {
         // get all the connections on a certain game
-        List<Connection> broadcastList = connections.get(Integer.valueOf(gameID));
+        Map<Session, Connection> broadcastList = games.get(gameID);
         if (broadcastList == null)
             return;
 
+        // turn it into json once, and send everyone the same text. a LoadGame has the whole
+        // board in it, so doing this per recipient added up fast on games with an audience
+        String json = serverMessage.toJSON();
+
         // go through all the connections
-        for (Connection recipient : broadcastList)
+        for (Connection recipient : broadcastList.values())
         {
-            // if the session is still active, send the notification
-            if (recipient.session.isOpen())
+            // if the session is still active (and keeping up), send the notification
+            if (recipient.session.isOpen() && !recipient.outbox.isClosed())
             {
                 if (!(exclusions.contains(recipient.visitorName)))
                 {
                     // must be sent as a json object, not a string
-                    recipient.send(serverMessage.toJSON());
+                    recipient.send(json);
                 }
             }
-            // otherwise, take them off the list and update it in the connections manager
+            // otherwise, take them off the list
             else
             {
-                broadcastList.remove(recipient);
-                connections.put(Integer.valueOf(gameID), broadcastList);
+                remove(gameID, recipient.session);
             }
         }
     }
 
 }
-
@@ -0,0 +1,158 @@
+package server.websocket;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gives every game with something going on a mailbox of its own. Commands for a game are
+ * run one at a time, in the order they came in, so nothing on a game ever has to race
+ * anything else on it. Different games each get their own turn on the executor, so they
+ * all run side by side.
+ * <p>
+ * A game's mailbox only exists while it has commands waiting. Once it's caught up, it's
+ * dropped, and the next command makes a new one.
+ */
+public class GameActors {
+
+    /**
+     * Something to do on a game
+     */
+    public interface Command {
+        void run() throws IOException;
+    }
+
+    // how many commands a game gets to run before it goes to the back of the line
+    static final int TURN_LIMIT = 32;
+
+    private final Executor executor;
+    private final ConcurrentHashMap<Integer, Actor> actors = new ConcurrentHashMap<>();
+
+    public GameActors(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * The executor used when none is given: a fixed pool of platform threads. Commands can
+     * wait on the database, so there are a couple per core, but never more than that however
+     * many games are busy. Games past that wait their turn in the pool's queue
+     */
+    public static ExecutorService defaultExecutor() {
+        return defaultExecutor(Thread.currentThread().getThreadGroup());
+    }
+
+    /**
+     * The default executor, with its threads made in the given group
+     */
+    public static ExecutorService defaultExecutor(ThreadGroup group) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2, runnable -> {
+            Thread thread = new Thread(group, runnable, "game-actor-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a command on the game. It runs after everything already queued on that game
+     */
+    public void submit(int gameID, Command command) {
+        // the command goes in under the map's lock on the game, so a mailbox is never
+        // dropped for being empty at the same time as something goes into it
+        Actor actor = actors.compute(gameID, (id, existing) -> {
+            if (existing == null)
+                existing = new Actor(id);
+            existing.mailbox.add(command);
+            return existing;
+        });
+        actor.schedule();
+    }
+
+    /**
+     * @return how many games have commands waiting or running right now
+     */
+    public int active() {
+        return actors.size();
+    }
+
+    private class Actor implements Runnable {
+        private final int gameID;
+        private final ConcurrentLinkedQueue<Command> mailbox = new ConcurrentLinkedQueue<>();
+        // whether this actor is on the executor. only one run is ever going at a time
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        Actor(int gameID) {
+            this.gameID = gameID;
+        }
+
+        void schedule() {
+            if (running.compareAndSet(false, true))
+            {
+                try
+                {
+                    executor.execute(this);
+                }
+                catch (RuntimeException e)
+                {
+                    // the executor won't take it (probably shutting down), so give up on the game
+                    running.set(false);
+                    System.out.printf("Error: couldn't run commands on game %d: %s%n", gameID, e.getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int handled = 0;
+            do
+            {
+                Command command;
+                while ((command = mailbox.poll()) != null)
+                {
+                    try
+                    {
+                        command.run();
+                    }
+                    // one bad command shouldn't take the game down with it
+                    catch (IOException | RuntimeException e)
+                    {
+                        System.out.printf("Error: command on game %d failed: %s%n", gameID, e.getMessage());
+                    }
+
+                    // the pool is only so big, so a busy game doesn't get to keep a thread to
+                    // itself. after a turn's worth, it goes to the back of the line. it's still
+                    // marked running, so nothing else schedules it in the meantime
+                    if (++handled == TURN_LIMIT && !mailbox.isEmpty() && yieldTurn())
+                        return;
+                }
+                running.set(false);
+
+                // caught up, so drop the mailbox, unless something came in just now. if it did,
+                // submit may have already started the actor again on another thread, and that
+                // run still needs it in the map, or the next command would start a second one
+                actors.computeIfPresent(gameID, (id, actor) ->
+                        actor == this && mailbox.isEmpty() && !running.get() ? null : actor);
+            }
+            // if something did come in, keep going, as long as submit didn't already restart us
+            while (!mailbox.isEmpty() && running.compareAndSet(false, true));
+        }
+
+        // if the executor won't take it back, just keep going on this thread
+        private boolean yieldTurn() {
+            try
+            {
+                executor.execute(this);
+                return true;
+            }
+            catch (RuntimeException e)
+            {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.util.ArrayDeque;
+
+/**
+ * Everything waiting to go out to one websocket session. Sending never blocks: a message
+ * is added to the queue, and the queue is written out one message at a time with Jetty's
+ * async send, so whoever sent it can get on with things right away.
+ * <p>
+ * The queue is bounded. If a session falls so far behind that it fills up, it's too slow
+ * to keep up with the game, so it gets closed instead of holding everyone else back.
+ */
+public class Outbox implements WriteCallback {
+
+    private final Session session;
+    private final int limit;
+
+    // everything below is guarded by the outbox itself
+    private final ArrayDeque<String> queue = new ArrayDeque<>();
+    // whether a message is being written right now. only one is, so they arrive in order
+    private boolean sending;
+    private boolean closed;
+
+    public Outbox(Session session, int limit) {
+        this.session = session;
+        this.limit = limit;
+    }
+
+    /**
+     * Queues a message to be sent
+     *
+     * @return false if the outbox is closed, or this message was what made it give up on
+     * the session
+     */
+    public boolean send(String message) {
+        synchronized (this) {
+            if (closed)
+                return false;
+            if (queue.size() >= limit) {
+                // too far behind. drop what's waiting and hang up on them
+                closed = true;
+                queue.clear();
+            }
+            else {
+                queue.add(message);
+                if (sending)
+                    return true;
+                sending = true;
+                message = queue.poll();
+            }
+        }
+
+        if (closed) {
+            session.close(StatusCode.POLICY_VIOLATION, "Too slow to keep up with the game");
+            return false;
+        }
+        write(message);
+        return true;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops sending. Whatever is still queued is dropped
+     */
+    public synchronized void close() {
+        closed = true;
+        queue.clear();
+    }
+
+    private void write(String message) {
+        try {
+            session.getRemote().sendString(message, this);
+        }
+        catch (RuntimeException e) {
+            writeFailed(e);
+        }
+    }
+
+    @Override
+    public void writeSuccess() {
+        // send whatever's next, if anything
+        String next;
+        synchronized (this) {
+            next = closed ? null : queue.poll();
+            if (next == null) {
+                sending = false;
+                return;
+            }
+        }
+        write(next);
+    }
+
+    @Override
+    public void writeFailed(Throwable x) {
+        // the session is gone, so there's no point sending it anything else
+        close();
+        synchronized (this) {
+            sending = false;
+        }
+    }
+}
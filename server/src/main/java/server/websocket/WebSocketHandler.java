@@ -2,11 +2,15 @@ package server.websocket;
 
 import chess.ChessGame;
 import chess.ChessMove;
+import chess.ChessPiece;
 import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
+import dataAccess.LiveGameCache;
+import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import service.ClearService;
@@ -24,83 +28,58 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 
 @WebSocket
 public class WebSocketHandler {
 
     private final ConnectionManager connections = new ConnectionManager();
-    private final DataAccess dataAccess;
+    // games with someone connected are read from and saved through here, so they only
+    // come out of the database once per session
+    private final LiveGameCache dataAccess;
+    // each game's commands run one at a time, in order, while different games run side by side
+    private final GameActors actors;
 
 
-    public WebSocketHandler(DataAccess dataAccess) {
+    public WebSocketHandler(LiveGameCache dataAccess) {
+        this(dataAccess, GameActors.defaultExecutor());
+    }
+
+    public WebSocketHandler(LiveGameCache dataAccess, Executor executor) {
         this.dataAccess = dataAccess;
+        this.actors = new GameActors(executor);
     }
 
     @OnWebSocketMessage
     public void onMessage(Session session, String message) throws IOException {
+        // everything on a game goes through that game's mailbox, so two commands on the same
+        // game never run at once, and this jetty thread is free again right away
         UserGameCommand command = new Gson().fromJson(message, UserGameCommand.class);
-        String username;
         switch (command.getCommandType()) {
             case JOIN_PLAYER:
                 JoinPlayer joinCommand = new Gson().fromJson(message, JoinPlayer.class);
-                username = this.dataAccess.getUsername(joinCommand.getAuthToken());
-                // make sure they're accessing a game that actually exists
-                if (dataAccess.getGame(joinCommand.getGameID()) == null) {
-                    Error error = new Error("This game doesn't exist you silly goose");
-                    session.getRemote().sendString(new Gson().toJson(error));
-                }
-                // if they're trying to access an uninitialized player spot, send an error
-                else if ((joinCommand.getColor().equals(ChessGame.TeamColor.WHITE) &&
-                        dataAccess.getGame((joinCommand.getGameID())).whiteUsername() == null) ||
-                        (joinCommand.getColor().equals(ChessGame.TeamColor.BLACK) &&
-                                dataAccess.getGame((joinCommand.getGameID())).blackUsername() == null)) {
-                    Error error = new Error("Nice try. Maybe go use the http endpoint you punk.");
-                    session.getRemote().sendString(new Gson().toJson(error));
-                }
-                // if they're trying to log into a position that's already theirs, let them join
-                else if ((joinCommand.getColor().equals(ChessGame.TeamColor.WHITE) &&
-                        dataAccess.getGame((joinCommand.getGameID())).whiteUsername().equals(username)) ||
-                        (joinCommand.getColor().equals(ChessGame.TeamColor.BLACK) &&
-                                dataAccess.getGame((joinCommand.getGameID())).blackUsername().equals(username))
-                )
-                    playerJoin(joinCommand.getGameID(), username, session, joinCommand.getColor());
-                    // otherwise, flag an error
-                else {
-                    Error error = new Error("You are not allowed to join this game");
-                    session.getRemote().sendString(new Gson().toJson(error));
-                }
+                actors.submit(joinCommand.getGameID(), () -> joinPlayer(session, joinCommand));
                 break;
             case JOIN_OBSERVER:
                 JoinObserver observeCommand = new Gson().fromJson(message, JoinObserver.class);
-                username = this.dataAccess.getUsername(observeCommand.getAuthToken());
-                // make sure they're accessing a game that actually exists
-                if (dataAccess.getGame(observeCommand.getGameID()) == null) {
-                    Error error = new Error("This game doesn't exist you silly goose");
-                    session.getRemote().sendString(new Gson().toJson(error));
-                }
-                // if they're trying to observe and the authtoken is valid
-                else if (dataAccess.sessionExists(observeCommand.getAuthToken()))
-                    observerJoin(observeCommand.getGameID(), username, session);
-                else {
-                    Error error = new Error("You are not allowed to join this game");
-                    session.getRemote().sendString(new Gson().toJson(error));
-                }
+                actors.submit(observeCommand.getGameID(), () -> joinObserver(session, observeCommand));
                 break;
 
             case MAKE_MOVE:
                 MakeMove makeMove = new Gson().fromJson(message, MakeMove.class);
-                move(session, makeMove.getGameID(), makeMove.getMove(), makeMove.getAuthToken());
+                actors.submit(makeMove.getGameID(),
+                        () -> move(session, makeMove.getGameID(), makeMove.getMove(), makeMove.getAuthToken()));
                 break;
 
             case RESIGN:
                 Resign resign = new Gson().fromJson(message, Resign.class);
-                resign(session, resign.getGameID());
+                actors.submit(resign.getGameID(), () -> resign(session, resign.getGameID()));
                 break;
 
             case LEAVE:
                 Leave leave = new Gson().fromJson(message, Leave.class);
-                leave(session, leave.getGameID());
+                actors.submit(leave.getGameID(), () -> leave(session, leave.getGameID()));
                 break;
 
             default:
@@ -108,28 +87,66 @@ public class WebSocketHandler {
         }
     }
 
-    private void leave(Session session, int gameID) throws IOException {
-        // pull out all the players associated with that game
-        List<Connection> relevantConnections = connections.connections.get(gameID);
-        Connection userConnection = null;
+    private void joinPlayer(Session session, JoinPlayer joinCommand) throws IOException {
+        String username = this.dataAccess.getUsername(joinCommand.getAuthToken());
+        // open it before checking anything, so the game checked is the one kept in memory,
+        // and it's only read from the database if nobody has it open yet
+        GameData joinGame = dataAccess.open(joinCommand.getGameID());
+        // make sure they're accessing a game that actually exists
+        if (joinGame == null) {
+            Error error = new Error("This game doesn't exist you silly goose");
+            connections.send(session, new Gson().toJson(error));
+        }
+        // if they're trying to access an uninitialized player spot, send an error
+        else if ((joinCommand.getColor().equals(ChessGame.TeamColor.WHITE) &&
+                joinGame.whiteUsername() == null) ||
+                (joinCommand.getColor().equals(ChessGame.TeamColor.BLACK) &&
+                        joinGame.blackUsername() == null)) {
+            Error error = new Error("Nice try. Maybe go use the http endpoint you punk.");
+            connections.send(session, new Gson().toJson(error));
+            closeIfEmpty(joinCommand.getGameID());
+        }
+        // if they're trying to log into a position that's already theirs, let them join
+        else if ((joinCommand.getColor().equals(ChessGame.TeamColor.WHITE) &&
+                joinGame.whiteUsername().equals(username)) ||
+                (joinCommand.getColor().equals(ChessGame.TeamColor.BLACK) &&
+                        joinGame.blackUsername().equals(username))
+        )
+            playerJoin(joinCommand.getGameID(), username, session, joinCommand.getColor());
+            // otherwise, flag an error
+        else {
+            Error error = new Error("You are not allowed to join this game");
+            connections.send(session, new Gson().toJson(error));
+            closeIfEmpty(joinCommand.getGameID());
+        }
+    }
 
-        // snag the person's username and remove them
-        for (Connection connection : relevantConnections)
-        {
-            if (connection.session.equals(session))
-            {
-               userConnection = connection;
-            }
+    private void joinObserver(Session session, JoinObserver observeCommand) throws IOException {
+        String username = this.dataAccess.getUsername(observeCommand.getAuthToken());
+        // make sure they're accessing a game that actually exists. it's opened first, like
+        // for players
+        if (dataAccess.open(observeCommand.getGameID()) == null) {
+            Error error = new Error("This game doesn't exist you silly goose");
+            connections.send(session, new Gson().toJson(error));
         }
+        // if they're trying to observe and the authtoken is valid
+        else if (dataAccess.sessionExists(observeCommand.getAuthToken()))
+            observerJoin(observeCommand.getGameID(), username, session);
+        else {
+            Error error = new Error("You are not allowed to join this game");
+            connections.send(session, new Gson().toJson(error));
+            closeIfEmpty(observeCommand.getGameID());
+        }
+    }
 
+    private void leave(Session session, int gameID) throws IOException {
+        // delete the connection, and snag the person's username
+        Connection userConnection = connections.remove(gameID, session);
         if (userConnection == null)
             return;
 
         String username = userConnection.visitorName;
-
-        // delete the connection
-        relevantConnections.remove(userConnection);
-        connections.connections.put(gameID, relevantConnections);
+        closeIfEmpty(gameID);
 
         // send a message out to everyone
         Notification notification = new Notification(String.format("%s has left the game", username));
@@ -141,111 +158,120 @@ public class WebSocketHandler {
 
     private void resign(Session session, int gameID) throws IOException {
 
-        // find the player with that session
-        StringBuilder usernameBuilder = null;
-        boolean validResigner = false;
-        List<Connection> possibleConnections = connections.connections.get(Integer.valueOf(gameID));
-        for (Connection connection : possibleConnections) {
-            // you've found the right session
-            if (connection.session.equals(session) && !connection.role.equals(Connection.Role.OBSERVER))
-            {
-                usernameBuilder = new StringBuilder(connection.visitorName);
-                validResigner = true;
-                break;
-            }
-            else if (connection.session.equals(session) && connection.role.equals(Connection.Role.OBSERVER))
-            {
-                usernameBuilder = new StringBuilder(connection.visitorName);
-                validResigner = false;
-                break;
-            }
-        }
+        // find the player with that session. observers can't resign
+        Connection connection = connections.get(gameID, session);
+        String resigner = connection == null ? null : connection.visitorName;
+        boolean validResigner = connection != null && !connection.role.equals(Connection.Role.OBSERVER);
 
         // if the game is already over, send an error message
         ChessGame game = dataAccess.getGame(gameID).game();
-        if (game.isOver())
+        boolean alreadyOver;
+        // the game's mailbox already keeps other commands off it. this is just so the
+        // background writer never copies it halfway through being changed
+        synchronized (game)
         {
-            session.getRemote().sendString(new Gson().toJson(new Error("Someone else already resigned")));
+            alreadyOver = game.isOver();
+            if (!alreadyOver && validResigner)
+            {
+                game.forceGameOver();
+                dataAccess.updateGame(gameID, game);
+            }
+        }
+        if (alreadyOver)
+        {
+            connections.send(session, new Gson().toJson(new Error("Someone else already resigned")));
         }
         // if they're validly resigning, end the game and send out the message
         else if (validResigner)
         {
-            game.forceGameOver();
-            dataAccess.updateGame(gameID, game);
             List<String> exclusions = new ArrayList<>();
-            ServerMessage message = new Notification(String.format("%s has forfeited", usernameBuilder.toString()));
+            ServerMessage message = new Notification(String.format("%s has forfeited", resigner));
             connections.broadcast(gameID, message, exclusions);
         }
         else if (!validResigner)
         {
-            session.getRemote().sendString(new Gson().toJson(new Error("You don't have the right to resign")));
+            connections.send(session, new Gson().toJson(new Error("You don't have the right to resign")));
         }
     }
 
 
 
     private void move(Session session, int gameID, ChessMove move, String authToken) throws IOException {
-        // get the game
-        ChessGame game = dataAccess.getGame(gameID).game();
-        String username = this.dataAccess.getUsername(authToken);
-        ChessGame.TeamColor color;
-        if (this.dataAccess.getGame(gameID).whiteUsername().equals(username))
-            color = ChessGame.TeamColor.WHITE;
-        else if (this.dataAccess.getGame(gameID).blackUsername().equals(username))
-            color = ChessGame.TeamColor.BLACK;
-        else
+        // get the game. it's the live copy, so this doesn't touch the database
+        GameData gameData = dataAccess.getGame(gameID);
+        if (gameData == null)
         {
-            Error error = new Error("You aren't allowed to move that piece");
-            session.getRemote().sendString(new Gson().toJson(error));
+            Error error = new Error("This game doesn't exist you silly goose");
+            connections.send(session, new Gson().toJson(error));
             return;
         }
-
-
-        // if it's game over, send back an error message
-        if (game.isOver())
-        {
-            webSocketMessages.serverMessages.Error error = new Error("Game is over. You can't move");
-            String temp = new Gson().toJson(error);
-            session.getRemote().sendString(new Gson().toJson(error));
-            return;
-        }
-
-        // make sure it's that the move is coming from the person who has the right to move it
-        ChessGame.TeamColor pieceColor = game.getBoard().getPiece(move.getStartPosition()).getTeamColor();
-        String ownerOfPiece;
-        if (pieceColor.equals(ChessGame.TeamColor.WHITE))
-            ownerOfPiece = dataAccess.getGame(gameID).whiteUsername();
-        else
-            ownerOfPiece = dataAccess.getGame(gameID).blackUsername();
-        if (!ownerOfPiece.equals(username))
+        ChessGame game = gameData.game();
+        String username = this.dataAccess.getUsername(authToken);
+        if (username == null || (!username.equals(gameData.whiteUsername()) && !username.equals(gameData.blackUsername())))
         {
             Error error = new Error("You aren't allowed to move that piece");
-            session.getRemote().sendString(new Gson().toJson(error));
+            connections.send(session, new Gson().toJson(error));
             return;
         }
 
-        // make the move
-        try
+        // the game's mailbox makes sure this is the only move being made on it. the lock is
+        // just so the background writer never copies it halfway through a move
+        String errorMessage = null;
+        synchronized (game)
         {
-            game.makeMove(move);
-            dataAccess.updateGame(gameID, game);
-            ServerMessage toSend = new Notification(String.format("%s moved their piece at %s to %s",
-                                                    username,
-                                                    move.getStartPosition().toString(),
-                                                    move.getEndPosition().toString()));
-            ArrayList<String> exclusions = new ArrayList<>();
-            exclusions.add(username);
-            connections.broadcast(gameID, toSend, exclusions);
-            toSend = new LoadGame(game);
-            connections.broadcast(gameID, toSend, new ArrayList<>());
+            // if it's game over, send back an error message
+            ChessPiece piece = game.getBoard().getPiece(move.getStartPosition());
+            if (game.isOver())
+                errorMessage = "Game is over. You can't move";
+            else if (piece == null)
+                errorMessage = "No piece at that position";
+            // make sure it's that the move is coming from the person who has the right to move it
+            else if (!username.equals(piece.getTeamColor() == ChessGame.TeamColor.WHITE ?
+                    gameData.whiteUsername() : gameData.blackUsername()))
+                errorMessage = "You aren't allowed to move that piece";
+            else
+            {
+                // make the move
+                try
+                {
+                    game.makeMove(move);
+                    // the move is saved in the background, so nobody waits on the database. if
+                    // that ended the game, the finished game goes out along with its last move
+                    dataAccess.batch(() -> {
+                        dataAccess.addMove(gameID, move);
+                        if (game.isOver())
+                            dataAccess.updateGame(gameID, game);
+                    });
+                }
+                // if it was a bad move, send an error
+                catch (InvalidMoveException e)
+                {
+                    errorMessage = e.getMessage();
+                }
+                catch (DataAccessException e)
+                {
+                    errorMessage = "Error: couldn't save that move";
+                }
+            }
         }
-        // if it was a bad move, send an error
-        catch (InvalidMoveException e)
+
+        if (errorMessage != null)
         {
             // get the connection and send an error message
-            Error error = new Error(e.getMessage());
-            session.getRemote().sendString(new Gson().toJson(error));
+            Error error = new Error(errorMessage);
+            connections.send(session, new Gson().toJson(error));
+            return;
         }
+
+        ServerMessage toSend = new Notification(String.format("%s moved their piece at %s to %s",
+                                                username,
+                                                move.getStartPosition().toString(),
+                                                move.getEndPosition().toString()));
+        ArrayList<String> exclusions = new ArrayList<>();
+        exclusions.add(username);
+        connections.broadcast(gameID, toSend, exclusions);
+        toSend = new LoadGame(game);
+        connections.broadcast(gameID, toSend, new ArrayList<>());
     }
 
     private void observerJoin(int gameID, String username, Session session) throws IOException {
@@ -256,7 +282,8 @@ public class WebSocketHandler {
         var notification = new Notification(message);
         connections.broadcast(gameID, notification, new ArrayList<>());
 
-        // add the connection
+        // add the connection. the game was opened when they asked to join, and stays in
+        // memory while someone is connected to it
         connections.add(gameID, username, session, role);
     }
 
@@ -270,8 +297,23 @@ public class WebSocketHandler {
         var notification = new Notification(message);
         connections.broadcast(gameID, notification, new ArrayList<>());
 
-        // add the connection
+        // add the connection. the game was opened when they asked to join, and stays in
+        // memory while someone is connected to it
         connections.add(gameID, visitorName, session, role);
     }
 
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        // take the session off every game it was on, and let go of games nobody is left in
+        for (Integer gameID : connections.closed(session).keySet())
+            actors.submit(gameID, () -> closeIfEmpty(gameID));
+    }
+
+    // once nobody is connected to a game (or someone who opened it wasn't let in), it
+    // doesn't need to stay in memory
+    private void closeIfEmpty(int gameID) {
+        if (connections.isEmpty(gameID))
+            dataAccess.close(gameID);
+    }
+
 }
\ No newline at end of file
@@ -1,12 +1,19 @@
 package service;
 
+import chess.ChessGame;
+import chess.GameCodec;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
 import model.GameData;
-import java.util.Collection;
+import model.GamePage;
+import model.GameQuery;
 
 public class GameService {
 
+    // how many games one page of the game list can have
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+
     private final DataAccess dataAccess;
 
     public GameService(DataAccess dataAccess)
@@ -34,13 +41,35 @@ public class GameService {
         }
     }
 
-    public Collection<GameData> listGames(String authToken) throws DataAccessException
+    public GamePage listGames(String authToken, GameQuery query) throws DataAccessException
     {
         // make sure the auth token is valid
-        if (dataAccess.sessionExists(authToken))
-            return dataAccess.listGames();
-        else
+        if (!dataAccess.sessionExists(authToken))
+            throw new DataAccessException("Error: unauthorized");
+        if (query.after() < 0 || query.limit() < 1 || query.limit() > MAX_PAGE_SIZE)
+            throw new DataAccessException("Error: bad request");
+        return dataAccess.listGames(query);
+    }
+
+    public GameData getGame(String authToken, int gameId) throws DataAccessException
+    {
+        // make sure the auth token is valid and the game exists
+        if (!dataAccess.sessionExists(authToken))
             throw new DataAccessException("Error: unauthorized");
+        GameData game = dataAccess.getGame(gameId);
+        if (game == null)
+            throw new DataAccessException("Error: bad request");
+        if (game.game() == null)
+            return game;
+
+        // this can be the live game someone is moving on right now, so hand back a copy taken
+        // under its lock. turning the live one into json could catch it halfway through a move
+        ChessGame copy;
+        synchronized (game.game())
+        {
+            copy = GameCodec.decode(GameCodec.encode(game.game()));
+        }
+        return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), copy);
     }
 
     public void joinGame(String authToken, String color, int gameId) throws DataAccessException
@@ -64,22 +93,16 @@ public class GameService {
             else if (color.equals("WHITE"))
             {
                 boolean isWhite = true;
-                // make sure that nobody is already playing as that color
-                GameData game = dataAccess.getGame(gameId);
-                if (game.whiteUsername() != null)
+                // take the spot, as long as nobody is already playing as that color
+                if (!dataAccess.addPlayerToGame(gameId, authToken, isWhite))
                     throw new DataAccessException("Error: already taken");
-                // assuming the coast is clear, add that player to the game
-                dataAccess.addPlayerToGame(gameId, authToken, isWhite);
             }
             else if (color.equals("BLACK"))
             {
                 boolean isWhite = false;
-                // make sure that nobody is already playing as that color
-                GameData game = dataAccess.getGame(gameId);
-                if (game.blackUsername() != null)
+                // take the spot, as long as nobody is already playing as that color
+                if (!dataAccess.addPlayerToGame(gameId, authToken, isWhite))
                     throw new DataAccessException("Error: already taken");
-                // assuming the coast is clear, add that player to the game
-                dataAccess.addPlayerToGame(gameId, authToken, isWhite);
             }
             // bad color
             else
@@ -0,0 +1,83 @@
+package dataAccessTests;
+
+import dataAccess.AuthCache;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class authCacheTest {
+
+    @Test
+    void hitAndMissTest()
+    {
+        AuthCache cache = new AuthCache(10, 60000);
+        assertNull(cache.get("token"));
+        cache.put("token", "username", cache.stamp());
+        assertEquals("username", cache.get("token"));
+
+        AuthCache.Stats stats = cache.stats();
+        assertEquals(1, stats.size());
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    void expiredTest() throws InterruptedException
+    {
+        AuthCache cache = new AuthCache(10, 20);
+        cache.put("token", "username", cache.stamp());
+        Thread.sleep(50);
+        assertNull(cache.get("token"));
+        assertEquals(1, cache.stats().expirations());
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void evictLeastRecentlyUsedTest()
+    {
+        AuthCache cache = new AuthCache(2, 60000);
+        cache.put("first", "a", cache.stamp());
+        cache.put("second", "b", cache.stamp());
+        // using first makes second the oldest
+        cache.get("first");
+        cache.put("third", "c", cache.stamp());
+
+        assertEquals("a", cache.get("first"));
+        assertNull(cache.get("second"));
+        assertEquals("c", cache.get("third"));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void invalidateTest()
+    {
+        AuthCache cache = new AuthCache(10, 60000);
+        cache.put("token", "username", cache.stamp());
+        cache.put("other", "username", cache.stamp());
+        cache.invalidate("token");
+        assertNull(cache.get("token"));
+        assertEquals("username", cache.get("other"));
+
+        cache.invalidateAll();
+        assertNull(cache.get("other"));
+    }
+
+    @Test
+    void staleLookupTest()
+    {
+        // a lookup that started before a logout finished shouldn't cache the old answer
+        AuthCache cache = new AuthCache(10, 60000);
+        long stamp = cache.stamp();
+        cache.invalidate("token");
+        cache.put("token", "username", stamp);
+        assertNull(cache.get("token"));
+    }
+
+    @Test
+    void disabledTest()
+    {
+        AuthCache cache = new AuthCache(0, 60000);
+        cache.put("token", "username", cache.stamp());
+        assertNull(cache.get("token"));
+    }
+}
@@ -1,10 +1,16 @@
 package dataAccessTests;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
 import dataAccess.DataAccess;
 import dataAccess.DataAccessException;
 import dataAccess.MySqlDataAccess;
 import model.AuthData;
 import model.GameData;
+import model.GamePage;
+import model.GameQuery;
 import model.UserData;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -377,5 +383,210 @@ class dataAccessTest {
         }
     }
 
-}
+    @Test
+    void addValidMoveTest()
+    {
+        GameData game = dataAccess.createGame("game");
+        dataAccess.addMove(game.gameID(), new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        ChessGame stored = dataAccess.getGame(game.gameID()).game();
+        assertEquals(ChessPiece.PieceType.PAWN, stored.getBoard().getPiece(new ChessPosition(4, 5)).getPieceType());
+        assertNull(stored.getBoard().getPiece(new ChessPosition(2, 5)));
+        assertEquals(ChessGame.TeamColor.BLACK, stored.getTeamTurn());
+        try
+        {
+            dataAccess.clear();
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void addManyMovesTest()
+    {
+        // knights out and back, enough times that the game gets snapshotted along the way
+        GameData game = dataAccess.createGame("game");
+        ChessMove[] moves = {
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null),
+                new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+                new ChessMove(new ChessPosition(6, 3), new ChessPosition(8, 2), null),
+        };
+        for (int i = 0; i < 50; i++)
+        {
+            dataAccess.addMove(game.gameID(), moves[i % 4]);
+            // loading it is what triggers a snapshot
+            dataAccess.getGame(game.gameID());
+        }
+
+        // 50 moves is 12 full trips plus the two knights out
+        ChessGame stored = dataAccess.getGame(game.gameID()).game();
+        assertEquals(ChessPiece.PieceType.KNIGHT, stored.getBoard().getPiece(new ChessPosition(3, 6)).getPieceType());
+        assertEquals(ChessPiece.PieceType.KNIGHT, stored.getBoard().getPiece(new ChessPosition(6, 3)).getPieceType());
+        assertEquals(ChessGame.TeamColor.WHITE, stored.getTeamTurn());
+        try
+        {
+            dataAccess.clear();
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void addInvalidMoveTest()
+    {
+        GameData game = dataAccess.createGame("game");
+        assertDoesNotThrow(() -> dataAccess.addMove(game.gameID(), null));
+        assertEquals(ChessGame.TeamColor.WHITE, dataAccess.getGame(game.gameID()).game().getTeamTurn());
+        try
+        {
+            dataAccess.clear();
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void validBatchTest()
+    {
+        GameData game = dataAccess.createGame("game");
+        AuthData data = dataAccess.createAuth("person");
+
+        assertDoesNotThrow(() -> dataAccess.batch(() -> {
+            dataAccess.addPlayerToGame(game.gameID(), data.authToken(), true);
+            dataAccess.addMove(game.gameID(), new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        }));
+
+        GameData stored = dataAccess.getGame(game.gameID());
+        assertEquals("person", stored.whiteUsername());
+        assertEquals(ChessGame.TeamColor.BLACK, stored.game().getTeamTurn());
+        try
+        {
+            dataAccess.clear();
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
 
+    @Test
+    void invalidBatchTest()
+    {
+        // nothing in a batch should be saved if it fails partway through
+        GameData game = dataAccess.createGame("game");
+        assertThrows(DataAccessException.class, () -> dataAccess.batch(() -> {
+            dataAccess.addMove(game.gameID(), new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            throw new DataAccessException("Error: stop");
+        }));
+
+        assertEquals(ChessGame.TeamColor.WHITE, dataAccess.getGame(game.gameID()).game().getTeamTurn());
+        try
+        {
+            dataAccess.clear();
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void validListGamesPageTest()
+    {
+        // five games, one with a player in it
+        dataAccess.createUser("person", "password", "email");
+        AuthData data = dataAccess.createAuth("person");
+        int firstID = 0;
+        for (int i = 0; i < 5; i++)
+        {
+            GameData game = dataAccess.createGame((i % 2 == 0 ? "even " : "odd ") + i);
+            if (i == 0)
+                firstID = game.gameID();
+        }
+        dataAccess.addPlayerToGame(firstID, data.authToken(), true);
+
+        // two pages of two, then the last one
+        GamePage page = dataAccess.listGames(new GameQuery(null, null, false, 0, 2));
+        assertEquals(2, page.games().size());
+        assertNotNull(page.nextCursor());
+        page = dataAccess.listGames(new GameQuery(null, null, false, page.nextCursor(), 2));
+        assertEquals(2, page.games().size());
+        page = dataAccess.listGames(new GameQuery(null, null, false, page.nextCursor(), 2));
+        assertEquals(1, page.games().size());
+        assertNull(page.nextCursor());
+        assertEquals("even 4", page.games().iterator().next().gameName());
+
+        // and the filters
+        assertEquals(3, dataAccess.listGames(new GameQuery("even", null, false, 0, 10)).games().size());
+        assertEquals(1, dataAccess.listGames(new GameQuery(null, "person", false, 0, 10)).games().size());
+        assertEquals(5, dataAccess.listGames(new GameQuery(null, null, true, 0, 10)).games().size());
+        try
+        {
+            dataAccess.clear();
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void listGamesIgnoresCaseTest()
+    {
+        // the collation ignores case and accents, and the memory backend has to list the same games
+        dataAccess.createUser("Person", "password", "email");
+        int seated = dataAccess.createGame("Friday Blitz").gameID();
+        dataAccess.createGame("friday rapid");
+        dataAccess.createGame("Caf\u00e9 club");
+        dataAccess.createGame("cafe open");
+        dataAccess.createGame("Saturday");
+        dataAccess.addPlayerToGame(seated, dataAccess.createAuth("Person").authToken(), true);
+
+        assertEquals(2, dataAccess.listGames(new GameQuery("FRIDAY", null, false, 0, 10)).games().size());
+        assertEquals(2, dataAccess.listGames(new GameQuery("cafe", null, false, 0, 10)).games().size());
+        assertEquals(2, dataAccess.listGames(new GameQuery("CAF\u00c9", null, false, 0, 10)).games().size());
+        assertEquals(1, dataAccess.listGames(new GameQuery(null, "person", false, 0, 10)).games().size());
+        assertTrue(dataAccess.listGames(new GameQuery("day", null, false, 0, 10)).games().isEmpty());
+        try
+        {
+            dataAccess.clear();
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    void invalidListGamesPageTest()
+    {
+        // the name filter turns into a LIKE, so % and _ in it have to only match themselves
+        dataAccess.createGame("game");
+        dataAccess.createGame("a_b");
+        dataAccess.createGame("axb");
+        dataAccess.createGame("50% off");
+        assertTrue(dataAccess.listGames(new GameQuery("%", null, false, 0, 10)).games().isEmpty());
+        GamePage page = dataAccess.listGames(new GameQuery("a_", null, false, 0, 10));
+        assertEquals(1, page.games().size());
+        assertEquals("a_b", page.games().iterator().next().gameName());
+        assertEquals(1, dataAccess.listGames(new GameQuery("50%", null, false, 0, 10)).games().size());
+        assertTrue(dataAccess.listGames(new GameQuery(null, "nobody", false, 0, 10)).games().isEmpty());
+        assertNull(dataAccess.listGames(new GameQuery("nope", null, false, 0, 10)).nextCursor());
+        try
+        {
+            dataAccess.clear();
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package dataAccessTests;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataAccess.DataAccessException;
+import dataAccess.LiveGameCache;
+import dataAccess.MemoryDataAccess;
+import model.AuthData;
+import model.GameData;
+import model.GameQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class liveGameCacheTest {
+
+    // a memory backend that keeps track of what the cache asks it for, and can be told to fail
+    static class Backend extends MemoryDataAccess
+    {
+        int gameReads;
+        boolean failWrites;
+        final List<ChessMove> moves = new ArrayList<>();
+        final List<ChessGame> wholeGames = new ArrayList<>();
+
+        @Override
+        public GameData getGame(int gameId)
+        {
+            gameReads++;
+            return super.getGame(gameId);
+        }
+
+        @Override
+        public void addMove(int gameID, ChessMove move)
+        {
+            if (failWrites)
+                throw new RuntimeException("database is down");
+            moves.add(move);
+        }
+
+        @Override
+        public void updateGame(int gameID, ChessGame game)
+        {
+            if (failWrites)
+                throw new RuntimeException("database is down");
+            wholeGames.add(game);
+            super.updateGame(gameID, game);
+        }
+    }
+
+    Backend backend;
+    LiveGameCache cache;
+    int gameID;
+
+    @BeforeEach
+    void setUp()
+    {
+        backend = new Backend();
+        cache = new LiveGameCache(backend);
+        gameID = cache.createGame("live game").gameID();
+    }
+
+    static ChessMove move(int startRow, int startCol, int endRow, int endCol)
+    {
+        return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+    }
+
+    // makes the move on the live game and saves it like the websocket handler does
+    void play(ChessMove move) throws InvalidMoveException, DataAccessException
+    {
+        ChessGame game = cache.getGame(gameID).game();
+        synchronized (game)
+        {
+            game.makeMove(move);
+            cache.batch(() -> cache.addMove(gameID, move));
+        }
+    }
+
+    @Test
+    void openReadsOnceTest() throws Exception
+    {
+        assertNotNull(cache.open(gameID));
+        int reads = backend.gameReads;
+        for (int i = 0; i < 10; i++)
+            assertNotNull(cache.getGame(gameID));
+        assertEquals(reads, backend.gameReads);
+        assertEquals(10, cache.stats().hits());
+    }
+
+    @Test
+    void openMissingGameTest()
+    {
+        assertNull(cache.open(12345));
+        assertEquals(0, cache.stats().live());
+    }
+
+    @Test
+    void movesWrittenBehindInOrderTest() throws Exception
+    {
+        cache.open(gameID);
+        List<ChessMove> played = List.of(move(1, 2, 3, 3), move(8, 2, 6, 3), move(3, 3, 1, 2), move(6, 3, 8, 2));
+        for (ChessMove move : played)
+            play(move);
+
+        cache.flush();
+        assertEquals(played, backend.moves);
+        assertEquals(0, cache.stats().pending());
+    }
+
+    @Test
+    void joinSeenByLiveGameTest()
+    {
+        cache.open(gameID);
+        cache.createUser("player", "password", "player@test.com");
+        AuthData auth = cache.createAuth("player");
+        cache.addPlayerToGame(gameID, auth.authToken(), true);
+        assertEquals("player", cache.getGame(gameID).whiteUsername());
+        assertEquals("player", cache.listGames(new GameQuery(null, null, false, 0, 10)).games().iterator().next().whiteUsername());
+
+        cache.removePlayer(gameID, "player");
+        assertNull(cache.getGame(gameID).whiteUsername());
+    }
+
+    @Test
+    void failedWriteSavesWholeGameTest() throws Exception
+    {
+        cache.open(gameID);
+        play(move(1, 2, 3, 3));
+        cache.flush();
+        backend.failWrites = true;
+        play(move(8, 2, 6, 3));
+        cache.flush();
+        assertEquals(1, cache.stats().failed());
+
+        // the next write saves the whole game, which covers the move that didn't make it
+        backend.failWrites = false;
+        play(move(3, 3, 1, 2));
+        cache.flush();
+        assertEquals(1, backend.moves.size());
+        assertEquals(1, backend.wholeGames.size());
+        assertEquals(cache.getGame(gameID).game().getBoard(), backend.wholeGames.get(0).getBoard());
+    }
+
+    @Test
+    void closeDropsGameTest() throws Exception
+    {
+        cache.open(gameID);
+        play(move(1, 2, 3, 3));
+        cache.close(gameID);
+        cache.flush();
+        assertEquals(0, cache.stats().live());
+        assertEquals(1, backend.moves.size());
+
+        // opening it again goes back to the backend
+        int reads = backend.gameReads;
+        cache.open(gameID);
+        assertEquals(reads + 1, backend.gameReads);
+    }
+}
@@ -0,0 +1,262 @@
+package dataAccessTests;
+
+import dataAccess.MemoryDataAccess;
+import model.AuthData;
+import model.GameData;
+import model.GamePage;
+import model.GameSummary;
+import model.GameQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// spark and the websocket handler both call into the memory data access from their own
+// threads, so these hammer it from a bunch of threads at once
+class memoryDataAccessTest {
+    static final int THREADS = 8;
+    static final int ROUNDS = 200;
+    // one page with every game on it
+    static final GameQuery EVERY_GAME = new GameQuery(null, null, false, 0, Integer.MAX_VALUE);
+    MemoryDataAccess dataAccess;
+
+    @BeforeEach
+    void setUp()
+    {
+        dataAccess = new MemoryDataAccess();
+    }
+
+    // runs every task at the same time and hands back what they returned
+    static <T> List<T> runTogether(List<Callable<T>> tasks) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try
+        {
+            List<Future<T>> futures = new ArrayList<>();
+            for (Callable<T> task : tasks)
+            {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures)
+                results.add(future.get(30, TimeUnit.SECONDS));
+            return results;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentCreateGameTest() throws Exception
+    {
+        List<Callable<GameData>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS * ROUNDS; i++)
+        {
+            String name = "game " + i;
+            tasks.add(() -> dataAccess.createGame(name));
+        }
+
+        // every game gets its own ID, and they all end up in the list
+        HashSet<Integer> ids = new HashSet<>();
+        for (GameData game : runTogether(tasks))
+        {
+            assertTrue(ids.add(game.gameID()));
+            assertTrue(dataAccess.gameExists(game.gameName()));
+        }
+        assertEquals(THREADS * ROUNDS, dataAccess.listGames(EVERY_GAME).games().size());
+    }
+
+    @Test
+    void concurrentJoinTest() throws Exception
+    {
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            dataAccess.createUser("white" + round, "password", "white@test.com");
+            dataAccess.createUser("black" + round, "password", "black@test.com");
+            AuthData white = dataAccess.createAuth("white" + round);
+            AuthData black = dataAccess.createAuth("black" + round);
+            int gameID = dataAccess.createGame("game " + round).gameID();
+
+            // both players join the same game at once. neither should wipe out the other
+            List<Callable<Void>> tasks = new ArrayList<>();
+            tasks.add(() -> { dataAccess.addPlayerToGame(gameID, white.authToken(), true); return null; });
+            tasks.add(() -> { dataAccess.addPlayerToGame(gameID, black.authToken(), false); return null; });
+            runTogether(tasks);
+
+            GameData game = dataAccess.getGame(gameID);
+            assertEquals("white" + round, game.whiteUsername());
+            assertEquals("black" + round, game.blackUsername());
+        }
+    }
+
+    @Test
+    void concurrentSameSeatTest() throws Exception
+    {
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            dataAccess.createUser("first" + round, "password", "first@test.com");
+            dataAccess.createUser("second" + round, "password", "second@test.com");
+            AuthData first = dataAccess.createAuth("first" + round);
+            AuthData second = dataAccess.createAuth("second" + round);
+            int gameID = dataAccess.createGame("seat " + round).gameID();
+
+            // both go for white at once. exactly one of them gets it, and keeps it
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            tasks.add(() -> dataAccess.addPlayerToGame(gameID, first.authToken(), true));
+            tasks.add(() -> dataAccess.addPlayerToGame(gameID, second.authToken(), true));
+            List<Boolean> claimed = runTogether(tasks);
+
+            assertNotEquals(claimed.get(0), claimed.get(1));
+            String winner = claimed.get(0) ? "first" + round : "second" + round;
+            assertEquals(winner, dataAccess.getGame(gameID).whiteUsername());
+        }
+    }
+
+    @Test
+    void listWhileChangingTest() throws Exception
+    {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++)
+        {
+            int thread = t;
+            // half the threads make games and sessions, the other half keep reading them
+            tasks.add(() -> {
+                int seen = 0;
+                for (int i = 0; i < ROUNDS; i++)
+                {
+                    if (thread % 2 == 0)
+                    {
+                        dataAccess.createGame("game " + thread + " " + i);
+                        AuthData auth = dataAccess.createAuth("user" + thread);
+                        dataAccess.deleteSession(auth.authToken());
+                    }
+                    else
+                    {
+                        for (GameSummary game : dataAccess.listGames(EVERY_GAME).games())
+                            seen += game.gameName() == null ? 0 : 1;
+                    }
+                }
+                return seen;
+            });
+        }
+
+        assertDoesNotThrow(() -> runTogether(tasks));
+        assertEquals(THREADS / 2 * ROUNDS, dataAccess.listGames(EVERY_GAME).games().size());
+    }
+
+    @Test
+    void pageWhileCreatingTest() throws Exception
+    {
+        // page through the list while other threads keep adding games. the cursor walks the
+        // skip list in gameID order, so every page starts after the last one and nothing
+        // that was there from the start gets skipped
+        List<Integer> before = new ArrayList<>();
+        for (int i = 0; i < ROUNDS; i++)
+            before.add(dataAccess.createGame("before " + i).gameID());
+
+        List<Callable<List<Integer>>> tasks = new ArrayList<>();
+        for (int thread = 0; thread < THREADS / 2; thread++)
+        {
+            int t = thread;
+            tasks.add(() -> {
+                for (int i = 0; i < ROUNDS; i++)
+                    dataAccess.createGame("during " + t + " " + i);
+                return List.of();
+            });
+            tasks.add(() -> {
+                List<Integer> seen = new ArrayList<>();
+                Integer cursor = 0;
+                while (cursor != null)
+                {
+                    GamePage page = dataAccess.listGames(new GameQuery(null, null, false, cursor, 7));
+                    page.games().forEach(game -> seen.add(game.gameID()));
+                    cursor = page.nextCursor();
+                }
+                return seen;
+            });
+        }
+
+        for (List<Integer> seen : runTogether(tasks))
+        {
+            if (seen.isEmpty())
+                continue;
+            for (int i = 1; i < seen.size(); i++)
+                assertTrue(seen.get(i - 1) < seen.get(i));
+            assertTrue(new HashSet<>(seen).containsAll(before));
+        }
+    }
+
+    @Test
+    void pagePastTheEndTest()
+    {
+        // a cursor after the last game is an empty last page, not an error
+        int last = 0;
+        for (int i = 0; i < 3; i++)
+            last = dataAccess.createGame("game " + i).gameID();
+        GamePage page = dataAccess.listGames(new GameQuery(null, null, false, last, 10));
+        assertTrue(page.games().isEmpty());
+        assertNull(page.nextCursor());
+
+        // and a full last page doesn't point at a page that isn't there
+        page = dataAccess.listGames(new GameQuery(null, null, false, 0, 3));
+        assertEquals(3, page.games().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void filterFullGamesTest()
+    {
+        // a game with both seats taken isn't open, and shows up for either of its players
+        dataAccess.createUser("white", "password", "white@test.com");
+        dataAccess.createUser("black", "password", "black@test.com");
+        int full = dataAccess.createGame("full").gameID();
+        dataAccess.createGame("empty");
+        dataAccess.addPlayerToGame(full, dataAccess.createAuth("white").authToken(), true);
+        dataAccess.addPlayerToGame(full, dataAccess.createAuth("black").authToken(), false);
+
+        GamePage open = dataAccess.listGames(new GameQuery(null, null, true, 0, 10));
+        assertEquals(1, open.games().size());
+        assertEquals("empty", open.games().iterator().next().gameName());
+        assertEquals(1, dataAccess.listGames(new GameQuery(null, "black", false, 0, 10)).games().size());
+        assertEquals(1, dataAccess.listGames(new GameQuery("fu", "white", false, 0, 10)).games().size());
+        assertTrue(dataAccess.listGames(new GameQuery("em", "white", false, 0, 10)).games().isEmpty());
+    }
+
+    @Test
+    void filterIgnoresCaseAndAccentsTest()
+    {
+        // like mysql's collation, the name and player filters don't care about case or accents
+        dataAccess.createUser("Person", "password", "person@test.com");
+        int seated = dataAccess.createGame("Friday Blitz").gameID();
+        dataAccess.createGame("friday rapid");
+        dataAccess.createGame("Caf\u00e9 club");
+        dataAccess.createGame("cafe open");
+        dataAccess.createGame("Saturday");
+        dataAccess.addPlayerToGame(seated, dataAccess.createAuth("Person").authToken(), true);
+
+        assertEquals(2, dataAccess.listGames(new GameQuery("FRIDAY", null, false, 0, 10)).games().size());
+        assertEquals(2, dataAccess.listGames(new GameQuery("cafe", null, false, 0, 10)).games().size());
+        assertEquals(2, dataAccess.listGames(new GameQuery("CAF\u00c9", null, false, 0, 10)).games().size());
+        assertEquals(1, dataAccess.listGames(new GameQuery(null, "person", false, 0, 10)).games().size());
+        assertTrue(dataAccess.listGames(new GameQuery("day", null, false, 0, 10)).games().isEmpty());
+    }
+
+}
@@ -4,6 +4,7 @@ import dataAccess.DataAccessException;
 import dataAccess.MemoryDataAccess;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
 import model.UserData;
 import org.junit.jupiter.api.Test;
 import service.GameService;
@@ -36,7 +37,7 @@ class ClearServiceTest {
             gameData = gameService.createGame(authData.authToken(), "name game2.0");
             gameData = gameService.createGame(authData.authToken(), "game 2");
             gameData = gameService.createGame(authData.authToken(), "vive le quebec");
-            assertEquals(3, gameService.listGames(authData.authToken()).size());
+            assertEquals(3, gameService.listGames(authData.authToken(), new GameQuery(null, null, false, 0, GameService.DEFAULT_PAGE_SIZE)).games().size());
         }
         catch (DataAccessException e)
         {
@@ -46,7 +47,7 @@ class ClearServiceTest {
 
         // make sure the size of everything is zero after you clear it
         dataAccess.clear();
-        assertEquals(0, dataAccess.listGames().size());
+        assertEquals(0, dataAccess.listGames(new GameQuery(null, null, false, 0, GameService.DEFAULT_PAGE_SIZE)).games().size());
         assertNull(dataAccess.getUser("test_username1"));
         assertFalse(dataAccess.sessionExists(authData.authToken()));
     }
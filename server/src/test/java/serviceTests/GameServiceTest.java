@@ -4,6 +4,7 @@ import dataAccess.DataAccessException;
 import dataAccess.MemoryDataAccess;
 import model.AuthData;
 import model.GameData;
+import model.GameQuery;
 import model.UserData;
 import org.eclipse.jetty.server.Authentication;
 import org.junit.jupiter.api.BeforeEach;
@@ -125,7 +126,7 @@ class GameServiceTest {
             gameData = gameService.createGame(authData.authToken(), "name game2.0");
             gameData = gameService.createGame(authData.authToken(), "game 2");
             gameData = gameService.createGame(authData.authToken(), "vive le quebec");
-            assertEquals(3, gameService.listGames(authData.authToken()).size());
+            assertEquals(3, gameService.listGames(authData.authToken(), new GameQuery(null, null, false, 0, GameService.DEFAULT_PAGE_SIZE)).games().size());
             dataAccess.clear();
             return;
         }
@@ -162,7 +163,7 @@ class GameServiceTest {
             gameData = gameService.createGame(authData.authToken(), "name game");
             gameData = gameService.createGame(authData.authToken(), "game 2");
             assertThrows(DataAccessException.class, () -> {
-                gameService.listGames("not a real token");
+                gameService.listGames("not a real token", new GameQuery(null, null, false, 0, GameService.DEFAULT_PAGE_SIZE));
             });
             dataAccess.clear();
         }
@@ -253,4 +254,40 @@ class GameServiceTest {
         }
         dataAccess.clear();
     }
-}
\ No newline at end of file
+
+    @Test
+    void getGameSuccess() throws DataAccessException
+    {
+        // make a user and a game
+        UserService userService = new UserService(dataAccess);
+        AuthData authData = userService.register(new UserData("get_username", "password123", "noreply@test.com"));
+        GameData gameData = service.createGame(authData.authToken(), "get game");
+
+        // it comes back as a copy, so nobody can catch the real one halfway through a move
+        GameData fetched = service.getGame(authData.authToken(), gameData.gameID());
+        GameData stored = dataAccess.getGame(gameData.gameID());
+        assertEquals(stored.gameName(), fetched.gameName());
+        assertFalse(stored.game() == fetched.game());
+        assertEquals(stored.game().getBoard(), fetched.game().getBoard());
+        assertEquals(stored.game().getTeamTurn(), fetched.game().getTeamTurn());
+        dataAccess.clear();
+    }
+
+    @Test
+    void getGameFail()
+    {
+        // a bad token, and a game that doesn't exist
+        assertThrows(DataAccessException.class, () -> service.getGame("not a token", 1));
+        UserService userService = new UserService(dataAccess);
+        try
+        {
+            AuthData authData = userService.register(new UserData("get_username", "password123", "noreply@test.com"));
+            assertThrows(DataAccessException.class, () -> service.getGame(authData.authToken(), 12345));
+        }
+        catch (DataAccessException e)
+        {
+            throw new RuntimeException(e);
+        }
+        dataAccess.clear();
+    }
+}
@@ -0,0 +1,213 @@
+package chess;
+
+/**
+ * Static tables and helpers for the 64-bit board representation that sits
+ * underneath ChessBoard.
+ * <p>
+ * Squares are numbered 0 through 63 starting at the bottom left, so square
+ * = (row - 1) * 8 + (column - 1). Bit n of a long is set when square n is in
+ * the set.
+ */
+final class Bitboards {
+
+    static final long RANK_1 = 0xFFL;
+    static final long RANK_2 = RANK_1 << 8;
+    static final long RANK_7 = RANK_1 << 48;
+    static final long RANK_8 = RANK_1 << 56;
+
+    // ray directions. the first four walk towards higher square numbers, the last four towards lower ones
+    static final int NORTH = 0;
+    static final int EAST = 1;
+    static final int NORTH_EAST = 2;
+    static final int NORTH_WEST = 3;
+    static final int SOUTH = 4;
+    static final int WEST = 5;
+    static final int SOUTH_WEST = 6;
+    static final int SOUTH_EAST = 7;
+
+    // {rowChange, colChange} for each direction above
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {0, 1}, {1, 1}, {1, -1},
+            {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}
+    };
+
+    static final long[] KNIGHT_ATTACKS = new long[64];
+    static final long[] KING_ATTACKS = new long[64];
+    // indexed by TeamColor.ordinal(), then by square
+    static final long[][] PAWN_ATTACKS = new long[2][64];
+    // every square from (but not including) a square to the edge of the board, in one direction
+    static final long[][] RAYS = new long[8][64];
+    // the squares strictly between two squares on the same row, column or diagonal, otherwise empty
+    static final long[][] BETWEEN = new long[64][64];
+    // the whole edge-to-edge line through two squares on the same row, column or diagonal, otherwise empty
+    static final long[][] LINE = new long[64][64];
+
+    static {
+        int[][] knightJumps = {{2, 1}, {2, -1}, {1, 2}, {1, -2}, {-2, -1}, {-1, -2}, {-1, 2}, {-2, 1}};
+        for (int sq = 0; sq < 64; sq++)
+        {
+            int row = row(sq);
+            int col = column(sq);
+
+            for (int[] jump : knightJumps)
+                KNIGHT_ATTACKS[sq] |= bit(row + jump[0], col + jump[1]);
+
+            for (int[] direction : DIRECTIONS)
+                KING_ATTACKS[sq] |= bit(row + direction[0], col + direction[1]);
+
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][sq] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][sq] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+
+            for (int dir = 0; dir < 8; dir++)
+            {
+                for (int r = row + DIRECTIONS[dir][0], c = col + DIRECTIONS[dir][1];
+                     r >= 1 && r <= 8 && c >= 1 && c <= 8;
+                     r += DIRECTIONS[dir][0], c += DIRECTIONS[dir][1])
+                {
+                    RAYS[dir][sq] |= bit(r, c);
+                }
+            }
+        }
+
+        // rays have to be finished for every square before they can be intersected
+        for (int sq = 0; sq < 64; sq++)
+        {
+            for (int dir = 0; dir < 8; dir++)
+            {
+                int opposite = (dir + 4) % 8;
+                long ray = RAYS[dir][sq];
+                while (ray != 0)
+                {
+                    int other = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[sq][other] = RAYS[dir][sq] & RAYS[opposite][other];
+                    LINE[sq][other] = RAYS[dir][sq] | RAYS[opposite][sq] | (1L << sq);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {}
+
+    /**
+     * @return the square index for a 1-indexed row and column
+     */
+    static int square(int row, int col) { return (row - 1) * 8 + (col - 1); }
+
+    /**
+     * @return the 1-indexed row of a square
+     */
+    static int row(int square) { return (square >>> 3) + 1; }
+
+    /**
+     * @return the 1-indexed column of a square
+     */
+    static int column(int square) { return (square & 7) + 1; }
+
+    /**
+     * @return a set holding just the given 1-indexed row and column, or an
+     * empty set if that spot is off the board
+     */
+    static long bit(int row, int col)
+    {
+        if (row < 1 || row > 8 || col < 1 || col > 8)
+            return 0L;
+        return 1L << square(row, col);
+    }
+
+    /**
+     * @return the slot in ChessBoard's piece sets used for a color and piece type
+     */
+    static int index(ChessGame.TeamColor color, ChessPiece.PieceType type)
+    {
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    static ChessGame.TeamColor colorOf(int index) { return ChessGame.TeamColor.values()[index / 6]; }
+
+    static ChessPiece.PieceType typeOf(int index) { return ChessPiece.PieceType.values()[index % 6]; }
+
+    /**
+     * Squares reachable along one direction, stopping at (and including) the
+     * first occupied square
+     */
+    static long rayAttacks(int direction, int square, long occupied)
+    {
+        long ray = RAYS[direction][square];
+        long blockers = ray & occupied;
+        if (blockers == 0)
+            return ray;
+
+        // the closest blocker is the lowest bit for the "positive" directions and the highest for the others
+        int blocker = direction < SOUTH ? Long.numberOfTrailingZeros(blockers) : 63 - Long.numberOfLeadingZeros(blockers);
+        return ray ^ RAYS[direction][blocker];
+    }
+
+    static long rookAttacks(int square, long occupied)
+    {
+        return rayAttacks(NORTH, square, occupied) | rayAttacks(EAST, square, occupied)
+                | rayAttacks(SOUTH, square, occupied) | rayAttacks(WEST, square, occupied);
+    }
+
+    static long bishopAttacks(int square, long occupied)
+    {
+        return rayAttacks(NORTH_EAST, square, occupied) | rayAttacks(NORTH_WEST, square, occupied)
+                | rayAttacks(SOUTH_EAST, square, occupied) | rayAttacks(SOUTH_WEST, square, occupied);
+    }
+
+    /**
+     * Every square a piece of the given type and color standing on a square
+     * attacks. For pawns this is only the diagonal captures, not the pushes.
+     */
+    static long attacks(ChessPiece.PieceType type, ChessGame.TeamColor color, int square, long occupied)
+    {
+        return switch (type)
+        {
+            case KING -> KING_ATTACKS[square];
+            case QUEEN -> rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+            case BISHOP -> bishopAttacks(square, occupied);
+            case KNIGHT -> KNIGHT_ATTACKS[square];
+            case ROOK -> rookAttacks(square, occupied);
+            case PAWN -> PAWN_ATTACKS[color.ordinal()][square];
+        };
+    }
+
+    /**
+     * @return every piece of the given color attacking a square, treating only the
+     * squares in occupied as blocking sliding pieces
+     */
+    static long attackersOf(ChessBoard board, int square, ChessGame.TeamColor byColor, long occupied)
+    {
+        int defender = byColor == ChessGame.TeamColor.WHITE ? 1 : 0;
+        long queens = board.pieces(byColor, ChessPiece.PieceType.QUEEN);
+        return (PAWN_ATTACKS[defender][square] & board.pieces(byColor, ChessPiece.PieceType.PAWN))
+                | (KNIGHT_ATTACKS[square] & board.pieces(byColor, ChessPiece.PieceType.KNIGHT))
+                | (KING_ATTACKS[square] & board.pieces(byColor, ChessPiece.PieceType.KING))
+                | (rookAttacks(square, occupied) & (board.pieces(byColor, ChessPiece.PieceType.ROOK) | queens))
+                | (bishopAttacks(square, occupied) & (board.pieces(byColor, ChessPiece.PieceType.BISHOP) | queens));
+    }
+
+    /**
+     * Works out whether any piece of the given color attacks a square by looking
+     * outward from the square itself: a knight jump, king step or pawn capture
+     * away, or the first piece along each ray. Nothing is generated for the
+     * attacking pieces.
+     */
+    static boolean isSquareAttacked(ChessBoard board, int square, ChessGame.TeamColor byColor)
+    {
+        // a pawn attacks this square if a pawn of the other color standing here would attack it back
+        int defender = byColor == ChessGame.TeamColor.WHITE ? 1 : 0;
+        if ((PAWN_ATTACKS[defender][square] & board.pieces(byColor, ChessPiece.PieceType.PAWN)) != 0)
+            return true;
+        if ((KNIGHT_ATTACKS[square] & board.pieces(byColor, ChessPiece.PieceType.KNIGHT)) != 0)
+            return true;
+        if ((KING_ATTACKS[square] & board.pieces(byColor, ChessPiece.PieceType.KING)) != 0)
+            return true;
+
+        long occupied = board.occupied();
+        long queens = board.pieces(byColor, ChessPiece.PieceType.QUEEN);
+        if ((rookAttacks(square, occupied) & (board.pieces(byColor, ChessPiece.PieceType.ROOK) | queens)) != 0)
+            return true;
+        return (bishopAttacks(square, occupied) & (board.pieces(byColor, ChessPiece.PieceType.BISHOP) | queens)) != 0;
+    }
+}
@@ -10,33 +10,27 @@ import java.util.Arrays;
  */
 public class ChessBoard {
 
-    // 2D array of pieces: the actual chessboard itself
-    private final ChessPiece[][] board;
+    // one 64-bit set per color and piece type, indexed by Bitboards.index. this is the actual chessboard itself
+    private final long[] pieces;
+    // every square held by each team, indexed by TeamColor.ordinal()
+    private final long[] occupancy;
+    // Zobrist key of the pieces on the board, kept up to date by every put and remove
+    private long zobristKey;
 
     public ChessBoard() {
         // initialize the chessboard. it is always 8x8
         // but it is indexed starting at 1
-        board = new ChessPiece[8][8];
+        pieces = new long[12];
+        occupancy = new long[2];
     }
 
     // copy constructor
     public ChessBoard(ChessBoard old)
     {
-        board = new ChessPiece[8][8];
-        for (int i = 1; i <= 8; i++)
-        {
-            for (int j = 1; j <= 8; j++)
-            {
-                ChessPosition tempPosition = new ChessPosition(i, j);
-                if (old.getPiece(tempPosition) != null)
-                {
-                    ChessPiece tempPiece = new ChessPiece(old.getPiece(tempPosition));
-                    this.addPiece(tempPosition, tempPiece);
-                }
-
-            }
-
-        }
+        // the sets are plain longs, so cloning the arrays is a full deep copy of the board
+        pieces = old.pieces.clone();
+        occupancy = old.occupancy.clone();
+        zobristKey = old.zobristKey;
     }
 
     /**
@@ -47,13 +41,17 @@ public class ChessBoard {
      */
     public void addPiece(ChessPosition position, ChessPiece piece)
     {
-        // pull out the x and y coordinates
-        int row = position.getRow();
-        int col = position.getColumn();
+        // pull out the square
+        int square = Bitboards.square(position.getRow(), position.getColumn());
+
+        // get rid of anything that's already there
+        int oldIndex = this.pieceIndexAt(square);
+        if (oldIndex != -1)
+            this.remove(square, oldIndex);
 
         // put the piece there
-        this.board[row - 1][col - 1] = piece;
-        //throw new RuntimeException("Not implemented");
+        if (piece != null)
+            this.put(square, Bitboards.index(piece.getTeamColor(), piece.getPieceType()));
     }
 
     /**
@@ -65,8 +63,80 @@ public class ChessBoard {
      */
     public ChessPiece getPiece(ChessPosition position)
     {
-        return this.board[position.getRow() - 1][position.getColumn() - 1];
-        //throw new RuntimeException("Not implemented");
+        int row = position.getRow();
+        int col = position.getColumn();
+        if (row < 1 || row > 8 || col < 1 || col > 8)
+            return null;
+
+        int index = this.pieceIndexAt(Bitboards.square(row, col));
+        if (index == -1)
+            return null;
+        return ChessPiece.ofIndex(index);
+    }
+
+    /**
+     * @return the Bitboards.index of the piece on a square, or -1 if it's empty
+     */
+    int pieceIndexAt(int square)
+    {
+        long bit = 1L << square;
+        if (((occupancy[0] | occupancy[1]) & bit) == 0)
+            return -1;
+
+        // only look through the sets of the team that's actually there
+        int first = (occupancy[0] & bit) != 0 ? 0 : 6;
+        for (int index = first; index < first + 6; index++)
+        {
+            if ((pieces[index] & bit) != 0)
+                return index;
+        }
+        return -1;
+    }
+
+    // puts a piece on an empty square
+    void put(int square, int index)
+    {
+        long bit = 1L << square;
+        pieces[index] |= bit;
+        occupancy[index / 6] |= bit;
+        zobristKey ^= Zobrist.PIECE_SQUARE[index][square];
+    }
+
+    // takes a known piece off of a square
+    void remove(int square, int index)
+    {
+        long bit = ~(1L << square);
+        pieces[index] &= bit;
+        occupancy[index / 6] &= bit;
+        zobristKey ^= Zobrist.PIECE_SQUARE[index][square];
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the pieces on the board. Boards with the same
+     * pieces on the same squares always have the same key, and different boards
+     * almost never do, which makes it good for caching and comparing positions.
+     * It doesn't know whose turn it is; see ChessGame.getZobristKey for that.
+     *
+     * @return the board's key
+     */
+    public long getZobristKey() { return zobristKey; }
+
+    long pieces(int index) { return pieces[index]; }
+
+    long pieces(ChessGame.TeamColor color, ChessPiece.PieceType type) { return pieces[Bitboards.index(color, type)]; }
+
+    long occupancy(ChessGame.TeamColor color) { return occupancy[color.ordinal()]; }
+
+    long occupied() { return occupancy[0] | occupancy[1]; }
+
+    /**
+     * @return the square of a team's king, or -1 if it doesn't have one. Kings have
+     * their own set, so this is a single bit scan rather than a search of the board
+     */
+    int kingSquare(ChessGame.TeamColor color)
+    {
+        long king = pieces[Bitboards.index(color, ChessPiece.PieceType.KING)];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
     }
 
     /**
@@ -90,71 +160,71 @@ public class ChessBoard {
 
         // black pieces first
         // black rooks
-        ChessPiece piece = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-        ChessPosition position = new ChessPosition(8, 1);
+        ChessPiece piece = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
+        ChessPosition position = ChessPosition.of(8, 1);
         this.addPiece(position, piece);
-        position = new ChessPosition(8,8);
+        position = ChessPosition.of(8,8);
         this.addPiece(position, piece);
         // black knights
-        piece = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        position = new ChessPosition(8, 2);
+        piece = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
+        position = ChessPosition.of(8, 2);
         this.addPiece(position, piece);
-        position = new ChessPosition(8,7);
+        position = ChessPosition.of(8,7);
         this.addPiece(position, piece);
         // black bishops
-        piece = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        position = new ChessPosition(8, 3);
+        piece = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
+        position = ChessPosition.of(8, 3);
         this.addPiece(position, piece);
-        position = new ChessPosition(8, 6);
+        position = ChessPosition.of(8, 6);
         this.addPiece(position, piece);
         // black queen
-        piece = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-        position = new ChessPosition(8, 4);
+        piece = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
+        position = ChessPosition.of(8, 4);
         this.addPiece(position, piece);
         // black king
-        piece = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-        position = new ChessPosition(8,5);
+        piece = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
+        position = ChessPosition.of(8,5);
         this.addPiece(position, piece);
         //black pawns
         for (int col = 1; col <= 8; col++)
         {
-            piece = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
-            position = new ChessPosition(7, col);
+            piece = ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            position = ChessPosition.of(7, col);
             this.addPiece(position, piece);
         }
 
         // white pieces. copy and paste of the black pieces
         // white rooks
-        piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        position = new ChessPosition(1, 1);
+        piece = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
+        position = ChessPosition.of(1, 1);
         this.addPiece(position, piece);
-        position = new ChessPosition(1,8);
+        position = ChessPosition.of(1,8);
         this.addPiece(position, piece);
         // white knights
-        piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        position = new ChessPosition(1, 2);
+        piece = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
+        position = ChessPosition.of(1, 2);
         this.addPiece(position, piece);
-        position = new ChessPosition(1,7);
+        position = ChessPosition.of(1,7);
         this.addPiece(position, piece);
         // white bishops
-        piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        position = new ChessPosition(1, 3);
+        piece = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
+        position = ChessPosition.of(1, 3);
         this.addPiece(position, piece);
-        position = new ChessPosition(1, 6);
+        position = ChessPosition.of(1, 6);
         this.addPiece(position, piece);
         // white queen
-        piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-        position = new ChessPosition(1, 4);
+        piece = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
+        position = ChessPosition.of(1, 4);
         this.addPiece(position, piece);
         // white king
-        piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-        position = new ChessPosition(1,5);
+        piece = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
+        position = ChessPosition.of(1,5);
         this.addPiece(position, piece);
         //white pawns
         for (int col = 1; col <= 8; col++)
         {
-            piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-            position = new ChessPosition(2, col);
+            piece = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+            position = ChessPosition.of(2, col);
             this.addPiece(position, piece);
         }
         String temp = this.toString();
@@ -167,20 +237,13 @@ public class ChessBoard {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ChessBoard that = (ChessBoard) o;
-        boolean toReturn = true;
-        for (int i = 0; i < 8; i++)
-        {
-            if (!(Arrays.equals(board[i], that.board[i]))) {
-                toReturn = false;
-                break;
-            }
-        }
-        return toReturn;
+        // different keys can only come from different boards, so that's a quick way out
+        return zobristKey == that.zobristKey && Arrays.equals(pieces, that.pieces);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(board);
+        return Long.hashCode(zobristKey);
     }
 
     @Override
@@ -192,7 +255,7 @@ public class ChessBoard {
         {
             for (int j = 1; j <= 8; j++)
             {
-                position = new ChessPosition(i,j);
+                position = ChessPosition.of(i,j);
                 if (this.getPiece(position) != null)
                 {
                     builder.append(this.getPiece(position).toString());
@@ -1,7 +1,6 @@
 package chess;
 
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Stack;
 import java.io.*;
 /**
@@ -13,11 +12,20 @@ import java.io.*;
 public class ChessGame {
 
     private ChessBoard board;
-    private final Collection<ChessMove> moves;
+    // every move made on the current board, most recent on top, so it can be taken back.
+    // GameCodec saves it with the game; gson skips it, so the game sent to clients is just
+    // the board and whose turn it is. a game gson makes gets an empty one from the constructor
+    private transient final Stack<MoveRecord> moves;
     private ChessGame.TeamColor whoseTurn;
 
     private boolean isOver;
 
+    // the last status worked out for each team (indexed by TeamColor.ordinal()), and the
+    // board key it was worked out for. any move changes the key, so an old status is never
+    // reused. not worth saving with the game, so gson skips them
+    private transient final Status[] statuses;
+    private transient final long[] statusKeys;
+
     public ChessGame()
     {
         this.board = new ChessBoard();
@@ -25,6 +33,8 @@ public class ChessGame {
         this.moves = new Stack<>();
         this.whoseTurn = TeamColor.WHITE;
         this.isOver = false;
+        this.statuses = new Status[2];
+        this.statusKeys = new long[2];
     }
 
     /**
@@ -47,6 +57,23 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Everything needed to take back a move: the move itself (packed, see PackedMove),
+     * the piece that moved, whatever it captured (-1 if nothing), and whose turn it
+     * was beforehand. Pieces are stored as their Bitboards.index.
+     */
+    record MoveRecord(int move, int movedPiece, int capturedPiece, TeamColor turn) {}
+
+    /**
+     * Where a team stands on the current board
+     */
+    private enum Status {
+        PLAYING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
     /**
      * Gets a valid moves for a piece at the given location
      *
@@ -56,72 +83,59 @@ public class ChessGame {
      */
     public Collection<ChessMove> validMoves(ChessPosition startPosition)
     {
-        TeamColor oldColor = this.whoseTurn;
-
-        // step 1: if there is no piece there, return null
+        // if there is no piece there, return null
         if (this.getBoard().getPiece(startPosition) == null)
             return null;
 
-        // step 2: get a list of all possible moves the piece could make: regardless of it would put
-        // the king in check
-        Collection<ChessMove> possibleMoves =
-                this.getBoard().getPiece(startPosition).pieceMoves(this.getBoard(), startPosition);
-
-        // step 3: filter out anything that would leave the king in check. Do this by making each move
-        // on a temporary board and then adding the move to a new collection if it's valid
-        // deep copy
-        ChessBoard oldBoard = new ChessBoard(this.getBoard());
-        Collection<ChessMove> validMoves = new HashSet<>();
-        for (ChessMove move : possibleMoves)
-        {
-            // make the move. if it's invalid, keep going
-            boolean badMove = false;
-            try
-            {
-                this.makeMove(move);
-            }
-            catch (InvalidMoveException e1)
-            {
-                // if it's not that color's turn, change the color and try again
-                if (e1.toString().equals("chess.InvalidMoveException: Not this color's turn!"))
-                {
-                    try
-                    {
-                        this.whoseTurn = (this.whoseTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-                        this.makeMove(move);
-                    }
-                    catch (InvalidMoveException e2)
-                    {
-                        // if it's still a bad move, mark it
-                        badMove  = true;
-                    }
-                    finally
-                    {
-                        // either way, make sure you don't mess up the color
-                        this.whoseTurn = oldColor;
-                    }
-                }
-                else // if the error is because of something else, there is a legitimate error
-                {
-                    this.whoseTurn = oldColor;
-                    badMove = true;
-                }
-            }
-
-            // if it is valid, reset the board to its normal state, add the move
-            // to the valid moves set, and keep going. you also need to invert the color
-            // of the team playing since it just made a successful move
-            if (!badMove)
-            {
-                ChessMove goodMove = new ChessMove(move);
-                validMoves.add(goodMove);
-                ChessBoard resetBoard = new ChessBoard(oldBoard);
-                this.setBoard(resetBoard);
-                this.whoseTurn = (this.whoseTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-            }
-        }
+        MoveList validMoves = new MoveList(32);
+        this.validMoves(startPosition, validMoves);
+        return validMoves.toChessMoves();
+    }
 
-        return validMoves;
+    /**
+     * Same as validMoves above, but adds the moves to a reusable list of packed moves
+     * instead of making a new collection. Adds nothing if there is no piece at
+     * startPosition.
+     *
+     * @param startPosition the piece to get valid moves for
+     * @param moves the list to add the moves to
+     */
+    public void validMoves(ChessPosition startPosition, MoveList moves)
+    {
+        ChessPiece piece = this.getBoard().getPiece(startPosition);
+        if (piece == null)
+            return;
+
+        // generate the piece's moves with pins and checks already accounted for, so
+        // nothing has to be tried out on the board
+        long start = Bitboards.bit(startPosition.getRow(), startPosition.getColumn());
+        MoveGenerator.legalMoves(this.getBoard(), piece.getTeamColor(), start, moves);
+    }
+
+    /**
+     * Gets every valid move a team has. This is the same as calling validMoves on each
+     * of the team's pieces, but checks and pins are only worked out once for all of them.
+     * Like validMoves, it doesn't care whose turn it is.
+     *
+     * @param teamColor the team to get valid moves for
+     * @return Set of every valid move for the team, empty if it can't move
+     */
+    public Collection<ChessMove> allMoves(TeamColor teamColor)
+    {
+        MoveList allMoves = new MoveList();
+        this.allMoves(teamColor, allMoves);
+        return allMoves.toChessMoves();
+    }
+
+    /**
+     * Same as allMoves above, but adds the moves to a reusable list of packed moves
+     *
+     * @param teamColor the team to get valid moves for
+     * @param moves the list to add the moves to
+     */
+    public void allMoves(TeamColor teamColor, MoveList moves)
+    {
+        MoveGenerator.legalMoves(this.getBoard(), teamColor, ~0L, moves);
     }
 
     /**
@@ -132,20 +146,44 @@ public class ChessGame {
      */
     public void makeMove(ChessMove move) throws InvalidMoveException {
 
-        // get the start position and end position
+        // anything off the board can't be packed into a square
         ChessPosition start = move.getStartPosition();
         ChessPosition end = move.getEndPosition();
-        TeamColor currentColor = board.getPiece(start).getTeamColor();
+        if (Bitboards.bit(start.getRow(), start.getColumn()) == 0)
+        {
+            throw new InvalidMoveException("No piece at that position");
+        }
+        if (Bitboards.bit(end.getRow(), end.getColumn()) == 0)
+        {
+            throw new InvalidMoveException("Not a possible move for this piece");
+        }
 
-        // get the piece
-        ChessPiece piece = this.board.getPiece(start);
+        this.makeMove(PackedMove.fromChessMove(move));
+    }
 
-        // get the piece that's about to be overwritten, in case you have to undo the move
-        ChessPiece overwrittenPiece = this.board.getPiece(end);
+    /**
+     * Makes a move packed as an int (see PackedMove)
+     *
+     * @param move packed chess move to preform
+     * @throws InvalidMoveException if move is invalid
+     */
+    public void makeMove(int move) throws InvalidMoveException {
 
-        // make sure that this move is in the set of valid moves for that piece
-        Collection<ChessMove> possibleMoves = piece.pieceMoves(this.board, start);
-        if (!(possibleMoves.contains(move)))
+        // get the piece
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int pieceIndex = this.board.pieceIndexAt(from);
+        if (pieceIndex == -1)
+        {
+            throw new InvalidMoveException("No piece at that position");
+        }
+        TeamColor currentColor = Bitboards.colorOf(pieceIndex);
+        ChessPiece.PieceType type = Bitboards.typeOf(pieceIndex);
+
+        // make sure that this move is in the set of possible moves for that piece
+        long endBit = 1L << to;
+        long possibleTargets = MoveGenerator.pseudoTargets(this.board, type, currentColor, from);
+        if ((possibleTargets & endBit) == 0 || !promotionMatches(type, currentColor, to, PackedMove.promotionPiece(move)))
         {
             throw new InvalidMoveException("Not a possible move for this piece");
         }
@@ -156,42 +194,99 @@ public class ChessGame {
             throw new InvalidMoveException("Not this color's turn!");
         }
 
-        // if it's getting promoted, make a new piece
-        ChessPiece newPiece;
-        if (move.getPromotionPiece() != null)
-            newPiece = new ChessPiece(piece.getTeamColor(), move.getPromotionPiece());
-        else
-            newPiece = piece;
+        // make sure this doesn't leave the king in check
+        if ((MoveGenerator.legalTargets(this.board, from) & endBit) == 0)
+        {
+            throw new InvalidMoveException("Puts king in check");
+        }
+
+        // make the move. this also hands the turn to the other team
+        makeMoveUnchecked(move);
+
+        // see if the opposing team is now in checkmate or stalemate. If so, toggle the isOver boolean.
+        // this is worked out once and remembered, so asking again before the next move is free
+        Status status = this.status(this.whoseTurn);
+        if (status == Status.CHECKMATE || status == Status.STALEMATE)
+            this.isOver = true;
+
+    }
 
-        // make a new temporary board based off of the current board
-        ChessBoard newBoard = new ChessBoard(this.getBoard());
-        ChessBoard oldBoard = this.getBoard();
-        this.setBoard(newBoard);
+    // a pawn reaching the far row has to say what it becomes, and nothing else can be promoted
+    private static boolean promotionMatches(ChessPiece.PieceType type, TeamColor color, int to,
+                                            ChessPiece.PieceType promotionPiece)
+    {
+        int lastRow = (color == TeamColor.WHITE) ? 8 : 1;
+        if (type != ChessPiece.PieceType.PAWN || Bitboards.row(to) != lastRow)
+            return promotionPiece == null;
+        return promotionPiece != null &&
+                promotionPiece != ChessPiece.PieceType.KING &&
+                promotionPiece != ChessPiece.PieceType.PAWN;
+    }
+
+    /**
+     * Moves a piece in place without checking that it's legal, and pushes a record
+     * onto the move stack so unmakeMove can put everything back. Passes the turn
+     * to the other team.
+     */
+    void makeMoveUnchecked(int move)
+    {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
 
-        // put the piece in its new spot
-        board.addPiece(end, newPiece);
+        int movedPiece = board.pieceIndexAt(from);
+        int capturedPiece = board.pieceIndexAt(to);
 
-        ChessPiece deadPiece = null;
+        if (capturedPiece != -1)
+            board.remove(to, capturedPiece);
+        board.remove(from, movedPiece);
+        board.put(to, placedPiece(move, movedPiece));
 
-        // make it null where it used to be
-        board.addPiece(start, deadPiece);
+        moves.push(new MoveRecord(move, movedPiece, capturedPiece, whoseTurn));
         this.whoseTurn = (this.whoseTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
+    }
 
-        // make sure this doesn't result in a check. if it does, undo the move and throw
-        // the exception
-        if (isInCheck(currentColor))
-        {
-            // change it back to the original team's turn
-            this.whoseTurn = (this.whoseTurn == TeamColor.WHITE) ? TeamColor.BLACK : TeamColor.WHITE;
-            setBoard(oldBoard);
+    /**
+     * Takes back the most recent move made with makeMoveUnchecked
+     */
+    void unmakeMove()
+    {
+        MoveRecord last = moves.pop();
+        int from = PackedMove.from(last.move());
+        int to = PackedMove.to(last.move());
 
-            throw new InvalidMoveException("Puts king in check");
-        }
+        board.remove(to, placedPiece(last.move(), last.movedPiece()));
+        board.put(from, last.movedPiece());
+        if (last.capturedPiece() != -1)
+            board.put(to, last.capturedPiece());
 
-        // see if the opposing team is now in checkmate or stalemate. If so, toggle the isOver boolean
-        if (isInCheckmate(this.whoseTurn) || isInStalemate(this.whoseTurn))
-            this.isOver = true;
+        this.whoseTurn = last.turn();
+    }
 
+    // the move stack itself, for GameCodec to save and restore
+    Stack<MoveRecord> history() { return this.moves; }
+
+    // if it's getting promoted, it turns into a new piece
+    private static int placedPiece(int move, int movedPiece)
+    {
+        ChessPiece.PieceType promotionPiece = PackedMove.promotionPiece(move);
+        if (promotionPiece == null)
+            return movedPiece;
+        return Bitboards.index(Bitboards.colorOf(movedPiece), promotionPiece);
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key for the current position: the board's key, mixed
+     * with whose turn it is. Make and unmake keep the board's key up to date as they
+     * go, so this never has to look at the whole board.
+     *
+     * @return the position's key
+     */
+    public long getZobristKey()
+    {
+        long key = this.board.getZobristKey();
+        if (this.whoseTurn == TeamColor.BLACK)
+            key ^= Zobrist.SIDE_TO_MOVE;
+        return key;
     }
 
     public boolean isOver() { return isOver; }
@@ -206,64 +301,16 @@ public class ChessGame {
      */
     public boolean isInCheck(TeamColor teamColor)
     {
-        ChessPosition kingPosition = null;
         // get the position of teamColor's king
-        for (int i = 1; i <= 8; i++)
-        {
-            for (int j = 1; j <= 8; j++)
-            {
-                ChessPosition tempPosition = new ChessPosition(i, j);
-                ChessPiece tempPiece = board.getPiece(tempPosition);
-                if (tempPiece != null) {
-                    // if it's a king of the correct color
-                    if (tempPiece.getPieceType() == ChessPiece.PieceType.KING &&
-                            tempPiece.getTeamColor() == teamColor) {
-                        kingPosition = new ChessPosition(i, j);
-                        // end the loop
-                        i = j = 9;
-                    }
-                }
-            }
-        }
-        if (kingPosition == null)
+        int kingSquare = board.kingSquare(teamColor);
+        if (kingSquare == -1)
         {
             return false; // can't be in check if you don't have a king ;)
         }
 
-
+        // look outward from the king for anything of the enemy color that could take it
         TeamColor enemyColor = teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
-        // go through all the pieces of the enemy color
-        for (int i = 1; i <= 8; i++)
-        {
-            for (int j = 1; j <= 8; j++)
-            {
-                ChessPosition tempPosition = new ChessPosition(i, j);
-                ChessPiece tempPiece = board.getPiece(tempPosition);
-                // make sure it's a valid piece
-                if (tempPiece != null)
-                {
-                    // make sure it's the right color
-                    if (tempPiece.getTeamColor() == enemyColor)
-                    {
-                        // calculate every possible move for the enemy piece
-                        Collection<ChessMove> possibleMoves = tempPiece.pieceMoves(board, tempPosition);
-
-                        // if any of those moves' end position is the position of teamColor's king, it is in check
-                        for (ChessMove move : possibleMoves)
-                        {
-                            if (move.getEndPosition().equals(kingPosition))
-                            {
-                                return true;
-                            }
-                        }
-
-                    }
-                }
-
-            }
-
-        }
-        return false;
+        return Bitboards.isSquareAttacked(board, kingSquare, enemyColor);
     }
 
     /**
@@ -274,50 +321,50 @@ public class ChessGame {
      */
     public boolean isInCheckmate(TeamColor teamColor)
     {
-        // if it's in check and in stalemate, it's in checkmate
-        return (this.isInStalemate(teamColor) && this.isInCheck(teamColor));
+        // if it's in check and has no valid moves, it's in checkmate
+        return this.status(teamColor) == Status.CHECKMATE;
     }
 
     /**
      * Determines if the given team is in stalemate, which here is defined as having
-     * no valid moves
+     * no valid moves while not being in check
      *
      * @param teamColor which team to check for stalemate
      * @return True if the specified team is in stalemate, otherwise false
      */
-    public boolean isInStalemate(TeamColor teamColor) {
-        // find the king of that color
-        ChessPiece king = null;
-        ChessPosition kingPosition = null;
-        for (int i = 1; i <= 8; i++)
-        {
-            for (int j = 1; j <= 8; j++)
-            {
-                ChessPosition tempPosition = new ChessPosition(i, j);
-                ChessPiece tempPiece = this.getBoard().getPiece(tempPosition);
-                if (tempPiece != null &&
-                    tempPiece.getPieceType() == ChessPiece.PieceType.KING &&
-                    tempPiece.getTeamColor() == teamColor)
-                {
-                    king = tempPiece;
-                    kingPosition = tempPosition;
-                    // break
-                    i = j = 9;
-                }
-
-            }
+    public boolean isInStalemate(TeamColor teamColor)
+    {
+        return this.status(teamColor) == Status.STALEMATE;
+    }
 
+    /**
+     * Works out whether a team is in check and whether it has any valid moves in a
+     * single pass, and remembers the answer until the board changes
+     */
+    private Status status(TeamColor teamColor)
+    {
+        int slot = teamColor.ordinal();
+        long key = this.board.getZobristKey();
+        if (this.statuses[slot] != null && this.statusKeys[slot] == key)
+            return this.statuses[slot];
+
+        Status status;
+        // can't be in check, checkmate or stalemate if you don't have a king ;)
+        if (this.board.kingSquare(teamColor) == -1)
+            status = Status.PLAYING;
+        else
+        {
+            boolean inCheck = this.isInCheck(teamColor);
+            boolean canMove = MoveGenerator.countLegalMoves(this.board, teamColor) > 0;
+            if (canMove)
+                status = inCheck ? Status.CHECK : Status.PLAYING;
+            else
+                status = inCheck ? Status.CHECKMATE : Status.STALEMATE;
         }
 
-        // can't be in stalemate if you don't have a king ;)
-        if (king == null)
-            return false;
-
-        // get all the valid moves
-        Collection<ChessMove> validMoves = this.validMoves(kingPosition);
-
-        // if there are no valid moves, it's  in stalemate
-        return validMoves.isEmpty();
+        this.statuses[slot] = status;
+        this.statusKeys[slot] = key;
+        return status;
     }
 
     /**
@@ -325,7 +372,12 @@ public class ChessGame {
      *
      * @param board the new board to use
      */
-    public void setBoard(ChessBoard board) {this.board = board;}
+    public void setBoard(ChessBoard board)
+    {
+        this.board = board;
+        // the old move records don't mean anything on a different board
+        this.moves.clear();
+    }
 
     /**
      * Gets the current chessboard
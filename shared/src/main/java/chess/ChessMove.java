@@ -22,8 +22,9 @@ public class ChessMove {
     }
 
     public ChessMove(ChessMove old) {
-        this.endPosition = new ChessPosition(old.getEndPosition());
-        this.startPosition = new ChessPosition(old.getStartPosition());
+        // positions can't change, so they can be shared with the old move
+        this.endPosition = old.getEndPosition();
+        this.startPosition = old.getStartPosition();
         this.promotionPiece = old.getPromotionPiece();
     }
 
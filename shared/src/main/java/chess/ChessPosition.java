@@ -17,6 +17,14 @@ public class ChessPosition {
     private final int row;
     private final int col;
 
+    // every position on the board, made once up front. positions never change, so these
+    // can be handed out and shared instead of making new ones
+    private static final ChessPosition[] POSITIONS = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++)
+            POSITIONS[square] = new ChessPosition(Bitboards.row(square), Bitboards.column(square));
+    }
 
     public ChessPosition(int row, int col)
     {
@@ -32,6 +40,24 @@ public class ChessPosition {
     }
 
 
+    /**
+     * Gets the shared instance of a position. Off-board positions aren't cached, so
+     * those still get a new object.
+     *
+     * @param row 1-indexed row
+     * @param col 1-indexed column
+     * @return the position at that row and column
+     */
+    public static ChessPosition of(int row, int col)
+    {
+        if (row < 1 || row > 8 || col < 1 || col > 8)
+            return new ChessPosition(row, col);
+        return POSITIONS[Bitboards.square(row, col)];
+    }
+
+    // same as above, but for a 0-63 square index
+    static ChessPosition ofSquare(int square) { return POSITIONS[square]; }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
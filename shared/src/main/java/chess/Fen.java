@@ -0,0 +1,100 @@
+package chess;
+
+/**
+ * Reads and writes games in Forsyth-Edwards Notation, e.g. the starting position
+ * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1".
+ * <p>
+ * Only the piece placement and whose turn it is mean anything here. This chess
+ * game has no castling or en passant, so those fields are written as "-" and
+ * ignored when read, along with the move counters.
+ */
+public final class Fen {
+
+    public static final String STARTING_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+
+    private Fen() {}
+
+    /**
+     * Makes a new game set up in the given position
+     *
+     * @param fen the position to load
+     * @return the game
+     * @throws IllegalArgumentException if the text isn't a valid FEN position
+     */
+    public static ChessGame toGame(String fen)
+    {
+        String[] fields = fen.trim().split("\\s+");
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8)
+            throw new IllegalArgumentException("FEN needs 8 rows: " + fen);
+
+        // rows are listed from the top of the board (row 8) down
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < 8; i++)
+        {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : rows[i].toCharArray())
+            {
+                if (Character.isDigit(c))
+                {
+                    col += c - '0';
+                    continue;
+                }
+
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type == -1 || col > 8)
+                    throw new IllegalArgumentException("Bad FEN row: " + rows[i]);
+
+                ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                board.addPiece(ChessPosition.of(row, col), ChessPiece.of(color, ChessPiece.PieceType.values()[type]));
+                col++;
+            }
+            if (col != 9)
+                throw new IllegalArgumentException("Bad FEN row: " + rows[i]);
+        }
+
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(fields.length > 1 && fields[1].equals("b") ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        return game;
+    }
+
+    /**
+     * @return the game's current position in FEN
+     */
+    public static String fromGame(ChessGame game)
+    {
+        ChessBoard board = game.getBoard();
+        StringBuilder builder = new StringBuilder();
+        for (int row = 8; row >= 1; row--)
+        {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++)
+            {
+                int index = board.pieceIndexAt(Bitboards.square(row, col));
+                if (index == -1)
+                {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0)
+                    builder.append(empty);
+                empty = 0;
+
+                char letter = PIECE_LETTERS.charAt(Bitboards.typeOf(index).ordinal());
+                builder.append(Bitboards.colorOf(index) == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0)
+                builder.append(empty);
+            if (row > 1)
+                builder.append('/');
+        }
+
+        builder.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w" : " b");
+        builder.append(" - - 0 1");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,149 @@
+package chess;
+
+import java.nio.ByteBuffer;
+import java.util.Stack;
+
+/**
+ * Packs a ChessGame into a few dozen bytes for storage, and unpacks it again.
+ * <p>
+ * The layout, all big-endian:
+ * <pre>
+ *   1 byte      format version (never '{', so it can't be mistaken for old JSON)
+ *   1 byte      flags: 1 = black's turn, 2 = game over
+ *   8 bytes     bitboard of the occupied squares
+ *   n/2 bytes   the piece on each occupied square as a Bitboards.index, 4 bits each,
+ *               in square order with the lowest square in the high half of the byte
+ *   2 bytes     number of moves in the history
+ *   4 bytes     per move, oldest first (see packRecord)
+ * </pre>
+ * The starting position with no moves comes out at 28 bytes.
+ */
+public final class GameCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int GAME_OVER = 2;
+
+    // a history record is the 17 bit packed move, then the moved piece, then the captured piece + 1
+    // (so nothing is 0), then whose turn it was
+    private static final int MOVE_BITS = 17;
+    private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+
+    private GameCodec() {}
+
+    /**
+     * @param game the game to pack
+     * @return the game as bytes
+     */
+    public static byte[] encode(ChessGame game)
+    {
+        ChessBoard board = game.getBoard();
+        long occupied = board.occupied();
+        int pieceCount = Long.bitCount(occupied);
+        Stack<ChessGame.MoveRecord> history = game.history();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 1 + 8 + (pieceCount + 1) / 2 + 2 + 4 * history.size());
+        buffer.put(VERSION);
+
+        int flags = 0;
+        if (game.getTeamTurn() == ChessGame.TeamColor.BLACK)
+            flags |= BLACK_TO_MOVE;
+        if (game.isOver())
+            flags |= GAME_OVER;
+        buffer.put((byte) flags);
+
+        buffer.putLong(occupied);
+        int half = -1;
+        for (long left = occupied; left != 0; left &= left - 1)
+        {
+            int index = board.pieceIndexAt(Long.numberOfTrailingZeros(left));
+            if (half == -1)
+                half = index << 4;
+            else
+            {
+                buffer.put((byte) (half | index));
+                half = -1;
+            }
+        }
+        if (half != -1)
+            buffer.put((byte) half);
+
+        if (history.size() > 0xFFFF)
+            throw new IllegalArgumentException("Too many moves to encode: " + history.size());
+        buffer.putShort((short) history.size());
+        for (ChessGame.MoveRecord record : history)
+            buffer.putInt(packRecord(record));
+
+        return buffer.array();
+    }
+
+    /**
+     * @param bytes a game packed by encode
+     * @return the game
+     * @throws IllegalArgumentException if the bytes aren't a game this version can read
+     */
+    public static ChessGame decode(byte[] bytes)
+    {
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.get() != VERSION)
+                throw new IllegalArgumentException("Unknown game encoding version " + bytes[0]);
+            int flags = buffer.get();
+
+            ChessBoard board = new ChessBoard();
+            long occupied = buffer.getLong();
+            int packed = 0;
+            boolean highHalf = true;
+            for (long left = occupied; left != 0; left &= left - 1)
+            {
+                int index;
+                if (highHalf)
+                {
+                    packed = buffer.get() & 0xFF;
+                    index = packed >>> 4;
+                }
+                else
+                    index = packed & 0xF;
+                highHalf = !highHalf;
+
+                if (index >= 12)
+                    throw new IllegalArgumentException("Bad piece in encoded game: " + index);
+                board.put(Long.numberOfTrailingZeros(left), index);
+            }
+
+            ChessGame game = new ChessGame();
+            game.setBoard(board);
+            game.setTeamTurn((flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+            if ((flags & GAME_OVER) != 0)
+                game.forceGameOver();
+
+            int moveCount = buffer.getShort() & 0xFFFF;
+            Stack<ChessGame.MoveRecord> history = game.history();
+            for (int i = 0; i < moveCount; i++)
+                history.push(unpackRecord(buffer.getInt()));
+            return game;
+        }
+        catch (java.nio.BufferUnderflowException e)
+        {
+            throw new IllegalArgumentException("Encoded game is cut short");
+        }
+    }
+
+    private static int packRecord(ChessGame.MoveRecord record)
+    {
+        return (record.move() & MOVE_MASK)
+                | (record.movedPiece() << MOVE_BITS)
+                | ((record.capturedPiece() + 1) << (MOVE_BITS + 4))
+                | (record.turn().ordinal() << (MOVE_BITS + 8));
+    }
+
+    private static ChessGame.MoveRecord unpackRecord(int packed)
+    {
+        return new ChessGame.MoveRecord(packed & MOVE_MASK,
+                (packed >>> MOVE_BITS) & 0xF,
+                ((packed >>> (MOVE_BITS + 4)) & 0xF) - 1,
+                ChessGame.TeamColor.values()[(packed >>> (MOVE_BITS + 8)) & 1]);
+    }
+}
@@ -0,0 +1,226 @@
+package chess;
+
+/**
+ * Generates moves straight from ChessBoard's piece sets.
+ * <p>
+ * Legal moves are found without trying them on the board: the pieces giving
+ * check and the pieces pinned to their king are worked out once per position,
+ * and every piece's destinations are narrowed down with those masks.
+ */
+final class MoveGenerator {
+
+    private MoveGenerator() {}
+
+    /**
+     * Every square a piece could move to, ignoring whether it leaves its own king
+     * in danger
+     */
+    static long pseudoTargets(ChessBoard board, ChessPiece.PieceType type, ChessGame.TeamColor color, int from)
+    {
+        if (type == ChessPiece.PieceType.PAWN)
+            return pawnTargets(board, color, from);
+        return Bitboards.attacks(type, color, from, board.occupied()) & ~board.occupancy(color);
+    }
+
+    // pushes onto empty squares plus diagonal captures of enemy pieces
+    private static long pawnTargets(ChessBoard board, ChessGame.TeamColor color, int from)
+    {
+        long empty = ~board.occupied();
+        long pawn = 1L << from;
+        long enemies = board.occupancy(enemyOf(color));
+
+        // black goes backwards and white goes forwards. it can go two spots from its starting row
+        // as long as nothing is in the way
+        long singlePush;
+        long doublePush;
+        if (color == ChessGame.TeamColor.WHITE)
+        {
+            singlePush = (pawn << 8) & empty;
+            doublePush = ((singlePush & (Bitboards.RANK_2 << 8)) << 8) & empty;
+        }
+        else
+        {
+            singlePush = (pawn >>> 8) & empty;
+            doublePush = ((singlePush & (Bitboards.RANK_7 >>> 8)) >>> 8) & empty;
+        }
+
+        return singlePush | doublePush | (Bitboards.PAWN_ATTACKS[color.ordinal()][from] & enemies);
+    }
+
+    /**
+     * Adds every legal move for the pieces of one color standing on the squares in
+     * fromMask. Check and pin information is computed once and shared by all of them.
+     */
+    static void legalMoves(ChessBoard board, ChessGame.TeamColor color, long fromMask, MoveList moves)
+    {
+        int king = board.kingSquare(color);
+        long checkMask = checkMask(board, color, king);
+        long pinned = pinnedPieces(board, color, king);
+
+        long pieces = board.occupancy(color) & fromMask;
+        while (pieces != 0)
+        {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+
+            ChessPiece.PieceType type = Bitboards.typeOf(board.pieceIndexAt(from));
+            long targets = legalTargets(board, color, type, from, king, checkMask, pinned);
+            addMoves(board, from, targets, type, color, moves);
+        }
+    }
+
+    /**
+     * Counts the legal moves one color has without making any of them. A pawn
+     * reaching the far row counts once for each piece it could be promoted to.
+     */
+    static int countLegalMoves(ChessBoard board, ChessGame.TeamColor color)
+    {
+        int king = board.kingSquare(color);
+        long checkMask = checkMask(board, color, king);
+        long pinned = pinnedPieces(board, color, king);
+        long promotionRow = (color == ChessGame.TeamColor.WHITE) ? Bitboards.RANK_8 : Bitboards.RANK_1;
+
+        int count = 0;
+        long pieces = board.occupancy(color);
+        while (pieces != 0)
+        {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+
+            ChessPiece.PieceType type = Bitboards.typeOf(board.pieceIndexAt(from));
+            long targets = legalTargets(board, color, type, from, king, checkMask, pinned);
+            count += Long.bitCount(targets);
+            if (type == ChessPiece.PieceType.PAWN)
+                count += 3 * Long.bitCount(targets & promotionRow);
+        }
+        return count;
+    }
+
+    /**
+     * @return every square the piece on a square can legally move to
+     */
+    static long legalTargets(ChessBoard board, int from)
+    {
+        int index = board.pieceIndexAt(from);
+        ChessGame.TeamColor color = Bitboards.colorOf(index);
+        int king = board.kingSquare(color);
+        return legalTargets(board, color, Bitboards.typeOf(index), from, king,
+                checkMask(board, color, king), pinnedPieces(board, color, king));
+    }
+
+    private static long legalTargets(ChessBoard board, ChessGame.TeamColor color, ChessPiece.PieceType type, int from,
+                                     int king, long checkMask, long pinned)
+    {
+        long targets = pseudoTargets(board, type, color, from);
+
+        // the king just can't step onto an attacked square. it's taken off the board while
+        // looking so it can't hide behind itself from a slider it's running away from
+        if (from == king)
+        {
+            long occupied = board.occupied() & ~(1L << from);
+            ChessGame.TeamColor enemy = enemyOf(color);
+            long safe = 0L;
+            while (targets != 0)
+            {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (Bitboards.attackersOf(board, to, enemy, occupied) == 0)
+                    safe |= 1L << to;
+            }
+            return safe;
+        }
+
+        // everything else has to deal with a check, and a pinned piece can't leave the line it's pinned on
+        targets &= checkMask;
+        if ((pinned & (1L << from)) != 0)
+            targets &= Bitboards.LINE[king][from];
+        return targets;
+    }
+
+    /**
+     * @return the squares a piece other than the king can move to in order to get out
+     * of check: all of them if there is no check, the checker and anything between it
+     * and the king if there is one, and none if there are two
+     */
+    private static long checkMask(ChessBoard board, ChessGame.TeamColor color, int king)
+    {
+        // can't be in check if you don't have a king ;)
+        if (king == -1)
+            return ~0L;
+
+        long checkers = Bitboards.attackersOf(board, king, enemyOf(color), board.occupied());
+        if (checkers == 0)
+            return ~0L;
+        if ((checkers & (checkers - 1)) != 0)
+            return 0L;
+        return checkers | Bitboards.BETWEEN[king][Long.numberOfTrailingZeros(checkers)];
+    }
+
+    /**
+     * @return the pieces of a color that are the only thing standing between their king
+     * and an enemy rook, bishop or queen
+     */
+    private static long pinnedPieces(ChessBoard board, ChessGame.TeamColor color, int king)
+    {
+        if (king == -1)
+            return 0L;
+
+        ChessGame.TeamColor enemy = enemyOf(color);
+        long queens = board.pieces(enemy, ChessPiece.PieceType.QUEEN);
+        long snipers = (Bitboards.rookAttacks(king, 0L) & (board.pieces(enemy, ChessPiece.PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, 0L) & (board.pieces(enemy, ChessPiece.PieceType.BISHOP) | queens));
+
+        long occupied = board.occupied();
+        long own = board.occupancy(color);
+        long pinned = 0L;
+        while (snipers != 0)
+        {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = Bitboards.BETWEEN[king][sniper] & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & own) != 0)
+                pinned |= blockers;
+        }
+        return pinned;
+    }
+
+    /**
+     * Turns a set of destination squares into packed moves. A pawn reaching the far row
+     * gets one move for each piece it could be promoted to.
+     */
+    static void addMoves(ChessBoard board, int from, long targets, ChessPiece.PieceType type, ChessGame.TeamColor color,
+                         MoveList moves)
+    {
+        long enemies = board.occupancy(enemyOf(color));
+        boolean pawn = type == ChessPiece.PieceType.PAWN;
+        long promotionRow = (color == ChessGame.TeamColor.WHITE) ? Bitboards.RANK_8 : Bitboards.RANK_1;
+
+        while (targets != 0)
+        {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+
+            int flags = 0;
+            if ((enemies & (1L << to)) != 0)
+                flags |= PackedMove.CAPTURE;
+            if (pawn && Math.abs(to - from) == 16)
+                flags |= PackedMove.DOUBLE_PUSH;
+
+            if (pawn && ((1L << to) & promotionRow) != 0)
+            {
+                moves.add(PackedMove.of(from, to, ChessPiece.PieceType.QUEEN, flags));
+                moves.add(PackedMove.of(from, to, ChessPiece.PieceType.BISHOP, flags));
+                moves.add(PackedMove.of(from, to, ChessPiece.PieceType.ROOK, flags));
+                moves.add(PackedMove.of(from, to, ChessPiece.PieceType.KNIGHT, flags));
+            }
+            else
+                moves.add(PackedMove.of(from, to, null, flags));
+        }
+    }
+
+    static ChessGame.TeamColor enemyOf(ChessGame.TeamColor color)
+    {
+        return color == ChessGame.TeamColor.WHITE ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    }
+}
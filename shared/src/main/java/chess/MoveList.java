@@ -0,0 +1,87 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A growable list of moves packed as ints (see PackedMove). Meant to be kept
+ * around and cleared between uses so that generating moves allocates nothing
+ * once the list has grown to fit.
+ */
+public final class MoveList {
+
+    private int[] moves;
+    private int size;
+
+    public MoveList()
+    {
+        // no chess position has more than 218 legal moves
+        this(256);
+    }
+
+    public MoveList(int capacity)
+    {
+        this.moves = new int[capacity];
+        this.size = 0;
+    }
+
+    public void add(int move)
+    {
+        if (size == moves.length)
+            // a list made with no room still has to be able to grow
+            moves = Arrays.copyOf(moves, Math.max(8, moves.length * 2));
+        moves[size++] = move;
+    }
+
+    public int get(int i)
+    {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for size " + size);
+        return moves[i];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void clear() { size = 0; }
+
+    /**
+     * @return true if the list holds the same move, ignoring flags
+     */
+    public boolean contains(int move)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            if (PackedMove.sameMove(moves[i], move))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Unpacks every move into a set of ChessMoves. This is for handing moves to code
+     * that wants the object form; it allocates one ChessMove per move.
+     */
+    public Set<ChessMove> toChessMoves()
+    {
+        Set<ChessMove> chessMoves = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++)
+            chessMoves.add(PackedMove.toChessMove(moves[i]));
+        return chessMoves;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++)
+        {
+            if (i > 0)
+                builder.append(", ");
+            builder.append(PackedMove.toString(moves[i]));
+        }
+        return builder.append("]").toString();
+    }
+}
@@ -0,0 +1,99 @@
+package chess;
+
+/**
+ * Packs a chess move into a single int so move generation doesn't have to make
+ * ChessMove and ChessPosition objects.
+ * <p>
+ * Squares are numbered 0 through 63 starting at the bottom left, so square
+ * = (row - 1) * 8 + (column - 1). The bits are laid out as:
+ * <pre>
+ *   bits 0-5    start square
+ *   bits 6-11   end square
+ *   bits 12-14  promotion piece (PieceType ordinal + 1, or 0 for none)
+ *   bits 15+    flags
+ * </pre>
+ * Flags only describe the move, so two packed moves with the same squares and
+ * promotion are the same move even if their flags differ.
+ */
+public final class PackedMove {
+
+    /**
+     * Set when the move lands on an enemy piece
+     */
+    public static final int CAPTURE = 1 << 15;
+
+    /**
+     * Set when a pawn moves two rows from its starting row
+     */
+    public static final int DOUBLE_PUSH = 1 << 16;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    // start, end and promotion, without the flags
+    private static final int MOVE_MASK = (1 << 15) - 1;
+
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {}
+
+    public static int of(int from, int to, ChessPiece.PieceType promotionPiece, int flags)
+    {
+        int promotion = promotionPiece == null ? 0 : promotionPiece.ordinal() + 1;
+        return from | (to << 6) | (promotion << PROMOTION_SHIFT) | flags;
+    }
+
+    public static int from(int move) { return move & SQUARE_MASK; }
+
+    public static int to(int move) { return (move >>> 6) & SQUARE_MASK; }
+
+    /**
+     * @return the piece a pawn is promoted to, or null if this isn't a promotion
+     */
+    public static ChessPiece.PieceType promotionPiece(int move)
+    {
+        int promotion = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return promotion == 0 ? null : TYPES[promotion - 1];
+    }
+
+    public static boolean hasFlag(int move, int flag) { return (move & flag) != 0; }
+
+    /**
+     * @return true if both ints describe the same move, ignoring their flags
+     */
+    public static boolean sameMove(int a, int b) { return (a & MOVE_MASK) == (b & MOVE_MASK); }
+
+    /**
+     * Packs a ChessMove. The result has no flags set, since those depend on the board.
+     */
+    public static int fromChessMove(ChessMove move)
+    {
+        ChessPosition start = move.getStartPosition();
+        ChessPosition end = move.getEndPosition();
+        return of(Bitboards.square(start.getRow(), start.getColumn()),
+                  Bitboards.square(end.getRow(), end.getColumn()),
+                  move.getPromotionPiece(), 0);
+    }
+
+    public static ChessMove toChessMove(int move)
+    {
+        return new ChessMove(ChessPosition.ofSquare(from(move)), ChessPosition.ofSquare(to(move)),
+                             promotionPiece(move));
+    }
+
+    /**
+     * @return the move in a readable form like "e2e4" or "a7a8=QUEEN"
+     */
+    public static String toString(int move)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int square : new int[]{from(move), to(move)})
+        {
+            builder.append((char) ('a' + Bitboards.column(square) - 1));
+            builder.append(Bitboards.row(square));
+        }
+        if (promotionPiece(move) != null)
+            builder.append('=').append(promotionPiece(move));
+        return builder.toString();
+    }
+}
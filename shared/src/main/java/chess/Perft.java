@@ -0,0 +1,52 @@
+package chess;
+
+/**
+ * Perft ("performance test") walks the tree of legal moves to a fixed depth and
+ * counts the positions at the bottom. The counts for well known positions are
+ * published, so it both checks move generation for correctness and gives a
+ * repeatable workload for timing it.
+ * <p>
+ * Moves are made and taken back on the game's own board, so the game is left
+ * exactly as it was found.
+ */
+public final class Perft {
+
+    private Perft() {}
+
+    /**
+     * @param game the position to start from. the side to move is whoever's turn it is
+     * @param depth how many moves deep to go
+     * @return the number of positions at that depth
+     */
+    public static long perft(ChessGame game, int depth)
+    {
+        if (depth <= 0)
+            return 1;
+
+        // one list per ply, made up front so the search itself allocates no lists
+        MoveList[] lists = new MoveList[depth];
+        for (int i = 0; i < depth; i++)
+            lists[i] = new MoveList();
+        return perft(game, depth, lists);
+    }
+
+    private static long perft(ChessGame game, int depth, MoveList[] lists)
+    {
+        // the last ply only needs a count, which doesn't have to make the moves
+        if (depth == 1)
+            return MoveGenerator.countLegalMoves(game.getBoard(), game.getTeamTurn());
+
+        MoveList moves = lists[depth - 1];
+        moves.clear();
+        game.allMoves(game.getTeamTurn(), moves);
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++)
+        {
+            game.makeMoveUnchecked(moves.get(i));
+            nodes += perft(game, depth - 1, lists);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,41 @@
+package chess;
+
+/**
+ * Random keys for Zobrist hashing. A position's key is the XOR of the key for
+ * every (piece, square) pair on the board, plus SIDE_TO_MOVE when it's black's
+ * turn, so moving a piece only takes a couple of XORs to update.
+ * <p>
+ * The keys come from a fixed seed, so the same position has the same key on
+ * every machine and across restarts. That lets keys be stored and compared
+ * between servers.
+ */
+final class Zobrist {
+
+    // indexed by Bitboards.index, then by square
+    static final long[][] PIECE_SQUARE = new long[12][64];
+    static final long SIDE_TO_MOVE;
+
+    static {
+        long state = 0x2400CB5C4E55L;
+        for (int index = 0; index < 12; index++)
+        {
+            for (int square = 0; square < 64; square++)
+            {
+                state += 0x9E3779B97F4A7C15L;
+                PIECE_SQUARE[index][square] = mix(state);
+            }
+        }
+        state += 0x9E3779B97F4A7C15L;
+        SIDE_TO_MOVE = mix(state);
+    }
+
+    private Zobrist() {}
+
+    // the SplitMix64 finalizer. spreads a counter out into a well mixed 64-bit value
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,11 @@
+package model;
+
+import java.util.Collection;
+
+/**
+ * One page of listed games. nextCursor is what to pass as GameQuery.after to get the next
+ * page, and is null on the last page
+ */
+public record GamePage(Collection<GameSummary> games, Integer nextCursor)
+{
+}
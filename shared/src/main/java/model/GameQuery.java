@@ -0,0 +1,10 @@
+package model;
+
+/**
+ * Which games to list, and which page of them. Pages are in gameID order: after is the
+ * last gameID of the page before (0 for the first page), and limit is how many to return.
+ * namePrefix, player and openSeats are filters, and null or false means don't filter.
+ */
+public record GameQuery(String namePrefix, String player, boolean openSeats, int after, int limit)
+{
+}
@@ -0,0 +1,9 @@
+package model;
+
+/**
+ * What the game list shows about a game: everything in GameData but the board, which
+ * is most of its size and isn't needed until someone joins
+ */
+public record GameSummary(int gameID, String whiteUsername, String blackUsername, String gameName)
+{
+}
@@ -1,7 +1,6 @@
 package webSocketMessages.serverMessages;
 
 import chess.ChessGame;
-import com.google.gson.Gson;
 
 public class LoadGame extends ServerMessage{
 
@@ -18,6 +17,6 @@ public class LoadGame extends ServerMessage{
 
     public String toJSON()
     {
-        return new Gson().toJson(this);
+        return GSON.toJson(this);
     }
 }
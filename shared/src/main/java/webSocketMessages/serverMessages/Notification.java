@@ -1,7 +1,5 @@
 package webSocketMessages.serverMessages;
 
-import com.google.gson.Gson;
-
 public class Notification extends ServerMessage{
 
     private String message;
@@ -23,6 +21,6 @@ public class Notification extends ServerMessage{
 
     public String toJSON()
     {
-        return new Gson().toJson(this);
+        return GSON.toJson(this);
     }
 }
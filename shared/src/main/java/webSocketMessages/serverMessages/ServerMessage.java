@@ -11,6 +11,9 @@ import java.util.Objects;
  * methods.
  */
 public class ServerMessage {
+    // Gson is safe to share between threads, and building one isn't free
+    static final Gson GSON = new Gson();
+
     ServerMessageType serverMessageType;
 
     public enum ServerMessageType {
@@ -27,7 +30,7 @@ public class ServerMessage {
         return this.serverMessageType;
     }
 
-    public String toJSON() { return new Gson().toJson(this); }
+    public String toJSON() { return GSON.toJson(this); }
 
     @Override
     public boolean equals(Object o) {
@@ -0,0 +1,43 @@
+package chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+public class AllMovesTests {
+
+    @Test
+    public void matchesValidMovesForEveryPiece() {
+        ChessGame game = Fen.toGame("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1");
+
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            Set<ChessMove> expected = new HashSet<>();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    ChessPosition position = ChessPosition.of(row, col);
+                    ChessPiece piece = game.getBoard().getPiece(position);
+                    if (piece != null && piece.getTeamColor() == color)
+                        expected.addAll(game.validMoves(position));
+                }
+            }
+            Assertions.assertEquals(expected, new HashSet<>(game.allMoves(color)));
+        }
+    }
+
+    @Test
+    public void checkmateHasNoMoves() throws InvalidMoveException {
+        ChessGame game = Fen.toGame(Fen.STARTING_POSITION);
+        game.makeMove(new ChessMove(ChessPosition.of(2, 6), ChessPosition.of(3, 6), null));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        game.makeMove(new ChessMove(ChessPosition.of(2, 7), ChessPosition.of(4, 7), null));
+        game.makeMove(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(4, 8), null));
+
+        Collection<ChessMove> moves = game.allMoves(ChessGame.TeamColor.WHITE);
+        Assertions.assertTrue(moves.isEmpty());
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+    }
+}
@@ -0,0 +1,53 @@
+package chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class GameCodecTests {
+
+    @Test
+    public void newGame() {
+        ChessGame game = new ChessGame();
+        byte[] bytes = GameCodec.encode(game);
+        Assertions.assertEquals(28, bytes.length);
+
+        ChessGame decoded = GameCodec.decode(bytes);
+        Assertions.assertEquals(game.getBoard(), decoded.getBoard());
+        Assertions.assertEquals(game.getTeamTurn(), decoded.getTeamTurn());
+        Assertions.assertFalse(decoded.isOver());
+    }
+
+    @Test
+    public void gameWithMoves() throws InvalidMoveException {
+        // fool's mate, with a capture and the game over flag along the way
+        ChessGame game = new ChessGame();
+        game.makeMove(new ChessMove(ChessPosition.of(2, 6), ChessPosition.of(3, 6), null));
+        game.makeMove(new ChessMove(ChessPosition.of(7, 5), ChessPosition.of(5, 5), null));
+        game.makeMove(new ChessMove(ChessPosition.of(2, 7), ChessPosition.of(4, 7), null));
+        game.makeMove(new ChessMove(ChessPosition.of(8, 4), ChessPosition.of(4, 8), null));
+
+        ChessGame decoded = GameCodec.decode(GameCodec.encode(game));
+        Assertions.assertEquals(game.getBoard(), decoded.getBoard());
+        Assertions.assertEquals(game.getZobristKey(), decoded.getZobristKey());
+        Assertions.assertTrue(decoded.isOver());
+        Assertions.assertTrue(decoded.isInCheckmate(ChessGame.TeamColor.WHITE));
+        Assertions.assertArrayEquals(GameCodec.encode(game), GameCodec.encode(decoded));
+    }
+
+    @Test
+    public void promotionAndOddPieceCount() throws InvalidMoveException {
+        ChessGame game = Fen.toGame("8/1P5k/8/8/8/8/8/K7 w - - 0 1");
+        game.makeMove(new ChessMove(ChessPosition.of(7, 2), ChessPosition.of(8, 2), ChessPiece.PieceType.KNIGHT));
+
+        ChessGame decoded = GameCodec.decode(GameCodec.encode(game));
+        Assertions.assertEquals(Fen.fromGame(game), Fen.fromGame(decoded));
+        Assertions.assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+    }
+
+    @Test
+    public void rejectsGarbage() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode("{\"board\":{}}".getBytes()));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(new byte[]{GameCodec.VERSION, 0, 1}));
+    }
+}
@@ -0,0 +1,17 @@
+package chessTests;
+
+import chess.*;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MoveListTests {
+
+    @Test
+    public void emptyMoveListGrows() {
+        MoveList list = new MoveList(0);
+        for (int i = 0; i < 20; i++)
+            list.add(i);
+        Assertions.assertEquals(20, list.size());
+        Assertions.assertEquals(19, list.get(19));
+    }
+}
@@ -0,0 +1,48 @@
+package chessTests;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.Perft;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class PerftTests {
+
+    // published numbers, see https://www.chessprogramming.org/Perft_Results
+    @Test
+    public void startingPosition() {
+        ChessGame game = Fen.toGame(Fen.STARTING_POSITION);
+        Assertions.assertEquals(20, Perft.perft(game, 1));
+        Assertions.assertEquals(400, Perft.perft(game, 2));
+        Assertions.assertEquals(8902, Perft.perft(game, 3));
+        Assertions.assertEquals(197281, Perft.perft(game, 4));
+    }
+
+    // lots of promotions, and no castling or en passant to get in the way
+    @Test
+    public void promotions() {
+        ChessGame game = Fen.toGame("n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1");
+        Assertions.assertEquals(24, Perft.perft(game, 1));
+        Assertions.assertEquals(496, Perft.perft(game, 2));
+        Assertions.assertEquals(9483, Perft.perft(game, 3));
+        Assertions.assertEquals(182838, Perft.perft(game, 4));
+    }
+
+    // the published depth 3 count is 2812, but 2 of those are en passant captures
+    @Test
+    public void endgame() {
+        ChessGame game = Fen.toGame("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+        Assertions.assertEquals(14, Perft.perft(game, 1));
+        Assertions.assertEquals(191, Perft.perft(game, 2));
+        Assertions.assertEquals(2810, Perft.perft(game, 3));
+    }
+
+    @Test
+    public void leavesGameAlone() {
+        ChessGame game = Fen.toGame(Fen.STARTING_POSITION);
+        long key = game.getZobristKey();
+        Perft.perft(game, 3);
+        Assertions.assertEquals(key, game.getZobristKey());
+        Assertions.assertEquals(Fen.STARTING_POSITION, Fen.fromGame(game));
+    }
+}